@@ -0,0 +1,40 @@
+package com.example.cockroachdemo.benchmark;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import com.example.cockroachdemo.model.Account;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+/**
+ * 单语句路径：
+ * - transfer：AccountMapper.transfer 在显式事务中执行（与 AccountService.transferFunds 相同的语句，不经过切面）
+ * - getAccountService：AccountService.getAccount（重试切面 + @Transactional(REQUIRES_NEW) + 查询）
+ * - getAccountMapper：AccountMapper.findAccountById 直接以 autocommit 执行
+ * getAccountService 与 getAccountMapper 的差异即事务边界（BEGIN / COMMIT）和切面的开销。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AccountMapperBenchmark {
+
+    @Benchmark
+    public int transfer(CockroachDemoState state) {
+        int fromId = CockroachDemoState.randomAccountId();
+        int toId = (fromId + 1) % CockroachDemoState.ACCOUNT_COUNT;
+        return state.transactionTemplate.execute(status -> state.accountMapper.transfer(fromId, toId, 1));
+    }
+
+    @Benchmark
+    public Optional<Account> getAccountService(CockroachDemoState state) {
+        return state.accountService.getAccount(CockroachDemoState.randomAccountId());
+    }
+
+    @Benchmark
+    public Optional<Account> getAccountMapper(CockroachDemoState state) {
+        return state.accountMapper.findAccountById(CockroachDemoState.randomAccountId());
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.cockroachdemo.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.executor.BatchResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * BatchAccountMapper：每次调用在一个事务中 insertAccount batchSize 行（upsert 已有账户）后 flush。
+ * 吞吐量按行计算（ops/s = rows/s），便于比较不同批大小。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BatchFlushBenchmark {
+    @Param({ "1", "16", "128", "1024" })
+    public int batchSize;
+
+    @Benchmark
+    @OperationsPerInvocation(1024)
+    public int batchFlush(CockroachDemoState state) {
+        // 每次调用写入 1024 行，按 batchSize 分成若干次 flush
+        return state.transactionTemplate.execute(status -> {
+            int statements = 0;
+            for (int written = 0; written < 1024; written += batchSize) {
+                for (int i = 0; i < batchSize; i++) {
+                    state.batchAccountMapper.insertAccount(BenchmarkAccounts.newAccount(
+                            CockroachDemoState.randomAccountId(), CockroachDemoState.INITIAL_BALANCE));
+                }
+                List<BatchResult> results = state.batchAccountMapper.flush();
+                statements += results.size();
+            }
+            return statements;
+        });
+    }
+}
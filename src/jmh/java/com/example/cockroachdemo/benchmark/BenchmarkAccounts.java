@@ -0,0 +1,15 @@
+package com.example.cockroachdemo.benchmark;
+
+import com.example.cockroachdemo.model.Account;
+
+final class BenchmarkAccounts {
+    private BenchmarkAccounts() {
+    }
+
+    static Account newAccount(int id, int balance) {
+        Account account = new Account();
+        account.setId(id);
+        account.setBalance(balance);
+        return account;
+    }
+}
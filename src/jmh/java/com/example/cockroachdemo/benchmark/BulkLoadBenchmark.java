@@ -0,0 +1,48 @@
+package com.example.cockroachdemo.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import com.example.cockroachdemo.model.BatchResults;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 批量导入 ROWS 行：
+ * - batchInsert：AccountService.bulkInsertRandomAccountData，BATCH 执行器每 1000 行 flush 一次
+ * - copy：AccountService.bulkLoadAccounts，通过 COPY 协议流式导入
+ * 两者都是纯插入，每次调用前清空 accounts 表；吞吐量按行计算（ops/s = rows/s）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BulkLoadBenchmark {
+    private static final int ROWS = 20000;
+
+    @Setup(Level.Invocation)
+    public void clear(CockroachDemoState state) {
+        // 每次调用约 20000 行，远长于 Level.Invocation 的计时误差
+        state.accountService.deleteAllAccounts();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public BatchResults batchInsert(CockroachDemoState state) {
+        return state.accountService.bulkInsertRandomAccountData(ROWS, 1000);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public BatchResults copy(CockroachDemoState state) {
+        return state.accountService.bulkLoadAccounts(IntStream.range(0, ROWS)
+                .mapToObj(id -> BenchmarkAccounts.newAccount(id, CockroachDemoState.INITIAL_BALANCE)));
+    }
+}
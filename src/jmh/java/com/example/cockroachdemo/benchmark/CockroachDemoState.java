@@ -0,0 +1,85 @@
+package com.example.cockroachdemo.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+import com.example.cockroachdemo.CockroachDemoApplication;
+import com.example.cockroachdemo.batchmapper.BatchAccountMapper;
+import com.example.cockroachdemo.mapper.AccountMapper;
+import com.example.cockroachdemo.service.AccountService;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.CockroachContainer;
+
+/**
+ * 基准测试共享的 Spring 上下文：
+ * - 设置了 cockroachdemo.benchmark.url（以及可选的 cockroachdemo.benchmark.username）时连接该 CockroachDB
+ * - 否则通过 Testcontainers 启动一个 CockroachDB 容器（需要 Docker）
+ * 以 benchmark profile 启动（不运行 BasicExample），并预先写入 ACCOUNT_COUNT 个余额充足的账户。
+ */
+@State(Scope.Benchmark)
+public class CockroachDemoState {
+    static final int ACCOUNT_COUNT = 10000;
+    static final int INITIAL_BALANCE = 1000000000;
+
+    private CockroachContainer container;
+    ConfigurableApplicationContext context;
+    AccountService accountService;
+    AccountMapper accountMapper;
+    BatchAccountMapper batchAccountMapper;
+    TransactionTemplate transactionTemplate;
+
+    @Setup(Level.Trial)
+    public void start() {
+        String url = System.getProperty("cockroachdemo.benchmark.url", "");
+        String username = System.getProperty("cockroachdemo.benchmark.username", "root");
+        String driverClassName = "org.postgresql.Driver";
+        if (url.isEmpty()) {
+            container = new CockroachContainer();
+            container.start();
+            url = container.getJdbcUrl();
+            username = container.getUsername();
+            driverClassName = container.getDriverClassName();
+        }
+        context = new SpringApplicationBuilder(CockroachDemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("benchmark")
+                .properties(
+                        "spring.datasource.driver-class-name=" + driverClassName,
+                        "spring.datasource.url=" + url,
+                        "spring.datasource.username=" + username)
+                .run();
+        accountService = context.getBean(AccountService.class);
+        accountMapper = context.getBean(AccountMapper.class);
+        batchAccountMapper = context.getBean(BatchAccountMapper.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        accountService.createAccountsTable();
+        accountService.deleteAllAccounts();
+        accountService.bulkLoadAccounts(IntStream.range(0, ACCOUNT_COUNT)
+                .mapToObj(id -> BenchmarkAccounts.newAccount(id, INITIAL_BALANCE)));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        if (context != null) {
+            context.close();
+        }
+        if (container != null) {
+            container.stop();
+        }
+    }
+
+    static int randomAccountId() {
+        return ThreadLocalRandom.current().nextInt(ACCOUNT_COUNT);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.cockroachdemo.benchmark;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 不访问数据库的 @Transactional 方法，用于单独测量 RetryableTransactionAspect 和事务拦截器本身的开销。
+ * NOT_SUPPORTED 不会开启事务或获取连接，但仍然经过完整的切面链。
+ */
+@Component
+public class NoopTransactionalBean {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int increment(int value) {
+        return value + 1;
+    }
+}
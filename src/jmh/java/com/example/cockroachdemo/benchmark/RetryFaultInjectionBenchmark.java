@@ -0,0 +1,73 @@
+package com.example.cockroachdemo.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import com.example.cockroachdemo.CockroachDemoApplication;
+import com.example.cockroachdemo.faultinjection.FaultInjectingDataSource;
+import com.example.cockroachdemo.faultinjection.FaultInjector;
+import com.example.cockroachdemo.faultinjection.FaultInjector.Fault;
+import com.example.cockroachdemo.service.AccountService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * 不同 40001 注入率下经过 RetryableTransactionAspect 的 updateAccount 吞吐量（不需要数据库）：
+ * DataSource 被替换为 FaultInjectingDataSource，每条语句有 200µs 加均值 100µs 的随机延迟。
+ * 退避被缩短到 1-5ms，结果反映的是重试本身的代价（额外的尝试、回滚和退避），而不是默认退避时间的长短。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+public class RetryFaultInjectionBenchmark {
+    @Param({ "0.0", "0.05", "0.2", "0.5" })
+    public double failureRate;
+
+    private ConfigurableApplicationContext context;
+    private AccountService accountService;
+
+    @Setup(Level.Trial)
+    public void start() {
+        FaultInjector faultInjector = new FaultInjector();
+        faultInjector.statementLatency(200, 100, TimeUnit.MICROSECONDS)
+                .rate(Fault.SERIALIZATION_FAILURE, failureRate);
+        // 在配置类处理之前注册 DataSource，自动配置的连接池因此不会创建
+        context = new SpringApplicationBuilder(CockroachDemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("benchmark")
+                .properties(
+                        "cockroachdemo.retry.initial-backoff-millis=1",
+                        "cockroachdemo.retry.max-backoff-millis=5")
+                .initializers(applicationContext -> applicationContext.getBeanFactory()
+                        .registerSingleton("dataSource", (DataSource) new FaultInjectingDataSource(faultInjector)))
+                .run();
+        accountService = context.getBean(AccountService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public void updateAccount() {
+        accountService.updateAccount(BenchmarkAccounts.newAccount(CockroachDemoState.randomAccountId(), 100));
+    }
+}
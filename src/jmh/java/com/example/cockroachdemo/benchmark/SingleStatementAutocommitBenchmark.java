@@ -0,0 +1,53 @@
+package com.example.cockroachdemo.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.example.cockroachdemo.SingleStatementAutocommit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * @SingleStatement 方法（transferFunds、findCountOfAccounts）的单次调用延迟：
+ * autocommit=false 时每次调用是 BEGIN / 语句 / COMMIT 三次往返，autocommit=true 时只有语句本身一次往返。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SingleStatementAutocommitBenchmark {
+    @Param({ "false", "true" })
+    public boolean autocommit;
+
+    private SingleStatementAutocommit singleStatementAutocommit;
+
+    @Setup(Level.Trial)
+    public void enable(CockroachDemoState state) {
+        singleStatementAutocommit = state.context.getBean(SingleStatementAutocommit.class);
+        singleStatementAutocommit.setEnabled(autocommit);
+    }
+
+    @TearDown(Level.Trial)
+    public void disable() {
+        singleStatementAutocommit.setEnabled(false);
+    }
+
+    @Benchmark
+    public int transferFunds(CockroachDemoState state) {
+        int fromId = CockroachDemoState.randomAccountId();
+        int toId = (fromId + 1) % CockroachDemoState.ACCOUNT_COUNT;
+        return state.accountService.transferFunds(fromId, toId, 1);
+    }
+
+    @Benchmark
+    public long findCountOfAccounts(CockroachDemoState state) {
+        return state.accountService.findCountOfAccounts();
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.cockroachdemo.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * RetryableTransactionAspect + @Transactional 的纯 CPU 开销：经过 Spring 代理调用与直接调用同一个方法的对比。
+ * 两者之差是每次服务调用在数据库往返之外固定付出的成本（以及 gc profiler 报告的每次调用的分配）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TransactionAspectOverheadBenchmark {
+    private NoopTransactionalBean proxied;
+    private final NoopTransactionalBean direct = new NoopTransactionalBean();
+    private int value;
+
+    @Setup(Level.Trial)
+    public void setup(CockroachDemoState state) {
+        proxied = state.context.getBean(NoopTransactionalBean.class);
+    }
+
+    @Benchmark
+    public int proxied() {
+        return proxied.increment(value++);
+    }
+
+    @Benchmark
+    public int direct() {
+        return direct.increment(value++);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.cockroachdemo;
+
+import java.util.Optional;
+
+import com.example.cockroachdemo.cache.AccountCache;
+import com.example.cockroachdemo.model.Account;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * 账户缓存切面：拦截 AccountService.getAccount(int)，在并发限制、重试和事务之前（最外层）查询 AccountCache。
+ * 命中时直接返回，不开启事务、不占用连接；未命中时执行原方法并按一致性模式回填缓存。
+ * 启用 follower reads 时不经过缓存。
+ */
+@Component
+@Aspect
+// Before concurrency limit advisor
+@Order(Ordered.LOWEST_PRECEDENCE - 4)
+public class AccountCacheAspect {
+    @Autowired
+    private AccountCache accountCache;
+    @Autowired
+    private FollowerReadAspect followerReadAspect;
+
+    @Around(value = "execution(* com.example.cockroachdemo.service.AccountService.getAccount(int)) && args(id)",
+            argNames = "pjp,id")
+    @SuppressWarnings("unchecked")
+    public Object cachedGetAccount(ProceedingJoinPoint pjp, int id) throws Throwable {
+        // follower reads 读到的是过去时间点的数据，不能回填到缓存中
+        if (!accountCache.isEnabled() || followerReadAspect.isEnabled()) {
+            return pjp.proceed();
+        }
+        Account cached = accountCache.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        long loadToken = accountCache.beginLoad();
+        Optional<Account> loaded = (Optional<Account>) pjp.proceed();
+        accountCache.completeLoad(id, loaded, loadToken);
+        return loaded;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.cockroachdemo;
+
+import java.util.concurrent.ExecutorService;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * AsyncAccountService 使用的执行器配置：
+ * - 默认（cockroachdemo.async.virtual-threads=true）在 Java 21+ 上为每个操作使用一个虚拟线程，
+ * 大量进行中的操作不会各自占用一个平台线程
+ * - 虚拟线程不可用或被关闭时使用大小为 cockroachdemo.async.threads 的固定线程池
+ *
+ * 重试退避由 AsyncRetryExecutor 通过延迟调度实现，不占用任何线程；实际并发的数据库操作数仍受连接池大小限制。
+ */
+@Configuration
+public class AsyncAccountServiceConfiguration {
+    @Value("${cockroachdemo.async.virtual-threads:true}")
+    private boolean virtualThreads;
+    @Value("${cockroachdemo.async.threads:64}")
+    private int threads;
+
+    @Bean(name = "asyncAccountExecutor", destroyMethod = "shutdown")
+    public ExecutorService asyncAccountExecutor() {
+        if (virtualThreads) {
+            ExecutorService executor = BulkInsertConfiguration.newVirtualThreadPerTaskExecutor();
+            if (executor != null) {
+                return executor;
+            }
+        }
+        return BulkInsertConfiguration.newFixedThreadPool(threads, "async-account-");
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.cockroachdemo;
 
 import java.time.LocalTime;
+import java.util.Map;
+import java.util.Optional;
 
 import com.example.cockroachdemo.model.Account;
 import com.example.cockroachdemo.model.BatchResults;
@@ -12,11 +14,12 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 @Component
-@Profile("!test")
+@Profile("!test & !benchmark & !workload")
 /**
  * 基本示例类（CommandLineRunner）：
  * 在 Spring Boot 启动后执行演示逻辑，演示了如何使用 AccountService 对账户表进行创建、删除、插入、查询、转账和批量插入等操作。
- * 该类仅在非 test profile 下运行（由 @Profile("!test") 控制），用于 CLI 演示而非单元测试。
+ * 该类仅在非 test / benchmark / workload profile 下运行（由 @Profile("!test & !benchmark & !workload") 控制），
+ * 用于 CLI 演示而非单元测试或基准测试；workload profile 下由 WorkloadDriver 代替。
  */
 public class BasicExample implements CommandLineRunner {
     @Autowired
@@ -57,8 +60,10 @@ public class BasicExample implements CommandLineRunner {
     }
 
     private void printBalances() {
-        int balance1 = accountService.getAccount(1).map(Account::getBalance).orElse(-1);
-        int balance2 = accountService.getAccount(2).map(Account::getBalance).orElse(-1);
+        // 一次查询（一次网络往返）取回两个账户
+        Map<Integer, Account> accounts = accountService.getAccounts(1, 2);
+        int balance1 = Optional.ofNullable(accounts.get(1)).map(Account::getBalance).orElse(-1);
+        int balance2 = Optional.ofNullable(accounts.get(2)).map(Account::getBalance).orElse(-1);
 
         // 输出两个账户的当前余额
         System.out.printf("printBalances:\n    => Account balances at time '%s':\n    ID %s => $%s\n    ID %s => $%s\n",
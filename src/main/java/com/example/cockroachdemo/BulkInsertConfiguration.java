@@ -0,0 +1,68 @@
+package com.example.cockroachdemo;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 并行批量插入使用的线程池配置：
+ * - cockroachdemo.bulk.parallel.virtual-threads=true 且运行在 Java 21+ 时使用虚拟线程（每个任务一个虚拟线程）
+ * - 否则使用大小为 cockroachdemo.bulk.parallel.threads 的固定线程池（默认等于 CPU 核数）
+ *
+ * 项目以 Java 17 编译，因此通过反射获取虚拟线程执行器；并发度最终还受分区数量和连接池大小限制。
+ */
+@Configuration
+public class BulkInsertConfiguration {
+    private static final Logger logger = LoggerFactory.getLogger(BulkInsertConfiguration.class);
+
+    @Value("${cockroachdemo.bulk.parallel.threads:0}")
+    private int threads;
+    @Value("${cockroachdemo.bulk.parallel.virtual-threads:false}")
+    private boolean virtualThreads;
+
+    @Bean(name = "bulkInsertExecutor", destroyMethod = "shutdown")
+    public ExecutorService bulkInsertExecutor() {
+        if (virtualThreads) {
+            ExecutorService executor = newVirtualThreadPerTaskExecutor();
+            if (executor != null) {
+                return executor;
+            }
+        }
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return newFixedThreadPool(poolSize, "bulk-insert-");
+    }
+
+    /**
+     * 通过反射调用 Executors.newVirtualThreadPerTaskExecutor()（Java 21+），不可用时返回 null。
+     */
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            logger.warn("Virtual threads are not available on this JVM, falling back to a fixed thread pool");
+            return null;
+        }
+    }
+
+    /**
+     * 使用守护线程、按 threadNamePrefix 编号命名的固定大小线程池。
+     */
+    static ExecutorService newFixedThreadPool(int poolSize, String threadNamePrefix) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, threadNamePrefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(poolSize, threadFactory);
+    }
+}
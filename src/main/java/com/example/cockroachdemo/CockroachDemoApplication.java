@@ -2,8 +2,12 @@ package com.example.cockroachdemo;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.core.Ordered;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 @SpringBootApplication
+// 显式指定 TX 拦截器的顺序：RetryableTransactionAspect（LOWEST - 2）在事务之外，SavepointRetryAspect（LOWEST）在事务之内
+@EnableTransactionManagement(proxyTargetClass = true, order = Ordered.LOWEST_PRECEDENCE - 1)
 /**
  * Spring Boot 应用程序入口：
  * 运行本类将启动 Spring Boot 上下文并执行任何实现了 CommandLineRunner 的组件（如 `BasicExample`）。
@@ -0,0 +1,51 @@
+package com.example.cockroachdemo;
+
+import java.lang.reflect.Method;
+
+import com.example.cockroachdemo.limit.AdaptiveConcurrencyLimiter;
+import com.example.cockroachdemo.limit.AdmissionRejectedException;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 并发准入切面：在 RetryableTransactionAspect 之外（最先执行），为每个 @Transactional 方法调用申请
+ * AdaptiveConcurrencyLimiter 的许可。许可覆盖整个调用（包括所有重试和退避），因此重试越多，新调用被放行得越少。
+ * 未获得许可时抛出 AdmissionRejectedException。仅当 cockroachdemo.limiter.enabled=true 时启用。
+ */
+@Component
+@Aspect
+@ConditionalOnProperty(name = "cockroachdemo.limiter.enabled", havingValue = "true")
+// Before retry advisor
+@Order(Ordered.LOWEST_PRECEDENCE - 3)
+public class ConcurrencyLimitAspect {
+    @Autowired
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @Pointcut("@annotation(transactional)")
+    public void anyTransactionBoundaryOperation(Transactional transactional) {
+    }
+
+    @Around(value = "anyTransactionBoundaryOperation(transactional)", argNames = "pjp,transactional")
+    public Object limitedOperation(ProceedingJoinPoint pjp, Transactional transactional) throws Throwable {
+        Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+        if (!limiter.acquire(method)) {
+            throw new AdmissionRejectedException("Concurrency limit (" + limiter.getLimit(method)
+                    + ") reached for method [" + pjp.getSignature().toLongString() + "], call rejected");
+        }
+        try {
+            return pjp.proceed();
+        } finally {
+            limiter.release(method);
+        }
+    }
+}
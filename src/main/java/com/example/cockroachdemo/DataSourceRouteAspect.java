@@ -0,0 +1,43 @@
+package com.example.cockroachdemo;
+
+import java.lang.reflect.Method;
+
+import com.example.cockroachdemo.routing.DataSourceRoute;
+import com.example.cockroachdemo.routing.RouteTo;
+import com.example.cockroachdemo.routing.RoutingDataSource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * 连接池路由切面：在 @RouteTo 方法（或类）执行期间为当前线程设置显式路由，
+ * 期间获取的物理连接来自指定的连接池。仅当 cockroachdemo.pools.enabled=true 时启用。
+ */
+@Component
+@Aspect
+@ConditionalOnProperty(name = "cockroachdemo.pools.enabled", havingValue = "true")
+// Before all other advisors：路由必须在事务获取连接之前确定
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class DataSourceRouteAspect {
+    @Around("@annotation(com.example.cockroachdemo.routing.RouteTo) || @within(com.example.cockroachdemo.routing.RouteTo)")
+    public Object routedOperation(ProceedingJoinPoint pjp) throws Throwable {
+        Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+        RouteTo routeTo = AnnotatedElementUtils.findMergedAnnotation(method, RouteTo.class);
+        if (routeTo == null) {
+            routeTo = AnnotatedElementUtils.findMergedAnnotation(pjp.getTarget().getClass(), RouteTo.class);
+        }
+        DataSourceRoute previous = RoutingDataSource.setCurrentRoute(routeTo.value());
+        try {
+            return pjp.proceed();
+        } finally {
+            RoutingDataSource.resetCurrentRoute(previous);
+        }
+    }
+}
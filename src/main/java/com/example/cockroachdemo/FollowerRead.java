@@ -0,0 +1,23 @@
+package com.example.cockroachdemo;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记只读的 @Transactional 方法可以使用有界陈旧读（AS OF SYSTEM TIME）。
+ * 只有在 cockroachdemo.follower-reads.enabled=true（或运行时通过 FollowerReadAspect#setEnabled 打开）时生效，
+ * 否则按当前时间读取。
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface FollowerRead {
+    /**
+     * 读取的时间点：follower_read_timestamp() 或负的时间间隔（如 "-10s"、"-500ms"）。
+     * 为空时使用 cockroachdemo.follower-reads.as-of。
+     */
+    String asOf() default "";
+}
@@ -0,0 +1,121 @@
+package com.example.cockroachdemo;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 有界陈旧读（follower reads）切面：
+ * - 在 TX 拦截器开启事务之后执行，对 @FollowerRead 方法的只读事务发出 `SET TRANSACTION AS OF SYSTEM TIME ...`
+ * - 读取过去某个时间点的一致快照，可以由最近的副本（follower）提供服务，不会被写意图阻塞，也不会因写入冲突而重启
+ *
+ * 只对只读事务生效，同一事务内的嵌套调用不做处理（AS OF SYSTEM TIME 必须是事务中的第一条语句）。
+ * cockroachdemo.follower-reads.enabled 决定初始状态，可以在运行时通过 setEnabled 切换。
+ */
+@Component
+@Aspect
+// After TX advisor（见 CockroachDemoApplication 中的 @EnableTransactionManagement order）
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class FollowerReadAspect {
+    static final String FOLLOWER_READ_TIMESTAMP = "follower_read_timestamp()";
+    private static final Pattern INTERVAL = Pattern.compile("-\\d+(\\.\\d+)?(us|ms|s|m|h)");
+
+    /** 当前线程中已设置 AS OF SYSTEM TIME 的事务连接，用于识别同一事务内的嵌套调用 */
+    private final ThreadLocal<ConnectionHolder> activeTransaction = new ThreadLocal<>();
+    /** 每个方法解析并校验后的 AS OF SYSTEM TIME 表达式（未在注解中指定时为 null） */
+    private final Map<Method, String> methodExpressions = new ConcurrentHashMap<>();
+
+    @Autowired
+    private DataSource dataSource;
+    @Value("${cockroachdemo.follower-reads.enabled:false}")
+    private volatile boolean enabled;
+    @Value("${cockroachdemo.follower-reads.as-of:follower_read_timestamp()}")
+    private String asOf;
+
+    private volatile String defaultExpression;
+
+    @PostConstruct
+    void init() {
+        defaultExpression = toAsOfExpression(asOf);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * 修改未在注解中指定时间点的方法使用的默认时间点。
+     */
+    public void setDefaultAsOf(String asOf) {
+        this.defaultExpression = toAsOfExpression(asOf);
+    }
+
+    @Around(value = "@annotation(followerRead)", argNames = "pjp,followerRead")
+    public Object followerReadOperation(ProceedingJoinPoint pjp, FollowerRead followerRead) throws Throwable {
+        if (!enabled) {
+            return pjp.proceed();
+        }
+        ConnectionHolder transaction = (ConnectionHolder) TransactionSynchronizationManager.getResource(dataSource);
+        if (transaction == null
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || transaction == activeTransaction.get()) {
+            return pjp.proceed();
+        }
+
+        Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+        String expression = methodExpressions.computeIfAbsent(method,
+                m -> followerRead.asOf().isEmpty() ? null : toAsOfExpression(followerRead.asOf()));
+        ConnectionHolder previous = activeTransaction.get();
+        activeTransaction.set(transaction);
+        try {
+            Connection connection = DataSourceUtils.getConnection(dataSource);
+            try (Statement statement = connection.createStatement()) {
+                // 必须是事务中的第一条语句
+                statement.execute("SET TRANSACTION AS OF SYSTEM TIME "
+                        + (expression != null ? expression : defaultExpression));
+            }
+            return pjp.proceed();
+        } finally {
+            activeTransaction.set(previous);
+        }
+    }
+
+    /**
+     * 校验并转换为 SQL 表达式：follower_read_timestamp() 原样使用，时间间隔作为字符串字面量。
+     * 只接受这两种形式，因此拼接到 SQL 中是安全的。
+     */
+    static String toAsOfExpression(String asOf) {
+        String value = asOf.trim();
+        if (FOLLOWER_READ_TIMESTAMP.equalsIgnoreCase(value)) {
+            return FOLLOWER_READ_TIMESTAMP;
+        }
+        if (INTERVAL.matcher(value).matches()) {
+            return "'" + value + "'";
+        }
+        throw new IllegalArgumentException("Invalid AS OF SYSTEM TIME value '" + asOf
+                + "': expected " + FOLLOWER_READ_TIMESTAMP + " or a negative interval such as -10s");
+    }
+}
@@ -2,13 +2,18 @@ package com.example.cockroachdemo;
 
 import javax.sql.DataSource;
 
+import com.example.cockroachdemo.metrics.StatementTimingInterceptor;
+import com.example.cockroachdemo.routing.MapperRouteInterceptor;
+
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.plugin.Interceptor;
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.mybatis.spring.SqlSessionFactoryBean;
 import org.mybatis.spring.SqlSessionTemplate;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
@@ -20,6 +25,10 @@ import org.springframework.context.annotation.Primary;
  * 这允许部分 Mapper（位于 `com.example.cockroachdemo.batchmapper`
  * 包）使用批处理执行器来更高效地执行大量插入操作。
  * 
+ * - 设置默认 JDBC fetch size（cockroachdemo.scan.fetch-size），使游标查询分批拉取结果而不是一次读入全部行
+ * - 注册 StatementTimingInterceptor 插件，统计每条 mapped statement 的耗时并捕获慢语句
+ * - 启用多连接池（cockroachdemo.pools.enabled）时注册 MapperRouteInterceptor，把 batchmapper 语句路由到 bulk 连接池
+ * 
  * 说明：当使用 MyBatis Spring Boot Starter 时，只有在需要自定义
  * SqlSessionTemplate（如使用批处理）时才需要此类。
  */
@@ -30,11 +39,25 @@ public class MyBatisConfiguration {
 
     @Autowired
     private DataSource dataSource;
+    @Autowired
+    private StatementTimingInterceptor statementTimingInterceptor;
+    @Autowired(required = false)
+    private MapperRouteInterceptor mapperRouteInterceptor;
+    @Value("${cockroachdemo.scan.fetch-size:1000}")
+    private int fetchSize;
 
     @Bean
     public SqlSessionFactory sqlSessionFactory() throws Exception {
         SqlSessionFactoryBean factory = new SqlSessionFactoryBean();
         factory.setDataSource(dataSource);
+        if (mapperRouteInterceptor != null) {
+            factory.setPlugins(new Interceptor[] {statementTimingInterceptor, mapperRouteInterceptor});
+        } else {
+            factory.setPlugins(statementTimingInterceptor);
+        }
+        org.apache.ibatis.session.Configuration configuration = new org.apache.ibatis.session.Configuration();
+        configuration.setDefaultFetchSize(fetchSize);
+        factory.setConfiguration(configuration);
         return factory.getObject();
     }
 
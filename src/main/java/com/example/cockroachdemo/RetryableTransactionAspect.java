@@ -1,20 +1,31 @@
 package com.example.cockroachdemo;
 
-import java.lang.reflect.UndeclaredThrowableException;
-import java.util.concurrent.atomic.AtomicLong;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.example.cockroachdemo.retry.RetryListener;
+import com.example.cockroachdemo.retry.RetryPolicy;
+import com.example.cockroachdemo.retry.TransactionRetry;
+import com.example.cockroachdemo.retry.TransientErrorType;
 
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.core.annotation.Order;
 import org.springframework.dao.ConcurrencyFailureException;
-import org.springframework.dao.TransientDataAccessException;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.TransactionSystemException;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.Assert;
@@ -22,22 +33,52 @@ import org.springframework.util.Assert;
 /**
  * 可重试事务切面（RetryableTransactionAspect）：
  * - 拦截标注了 @Transactional 的方法（通过切点 anyTransactionBoundaryOperation）
- * - 如果因为并发冲突/瞬时数据访问（如
- * TransientDataAccessException/TransactionSystemException）导致失败，
+ * - 如果因为并发冲突/瞬时数据访问（按 SQLSTATE 分类，见 TransientErrorType）导致失败，
  * 则会在非事务上下文中重试整个方法（确保事务不会被错误嵌套）
  * - 这种实现对于 CockroachDB 等分布式数据库很有用，因为它们会在并发冲突时返回重试指示（需要客户端重试）
  * 
  * 注意：
  * - 该切面必须在事务拦截器之前执行（@Order 确保它排在嵌套事务拦截器之前），以便从非事务上下文重试。
- * - 重试策略：默认最多 30 次尝试，起始退避时间 150ms，逐步增加至最大 1500ms（指数/线性退避混合）
+ * - 重试策略由 RetryPolicy Bean 决定（默认：最多 30 次尝试，起始退避 150ms，按 1.5 倍增长至最大 1500ms，带完全抖动），
+ * 单个方法可以通过 @TransactionRetry 覆盖限制。
+ * - 启用 SavepointRetryAspect 时，40001 错误先在事务内通过 savepoint 重试，只有其放弃后才由本切面重试整个事务
+ * - 通过 runSingleAttempt 调用时只执行一次，由调用方（如 AsyncRetryExecutor）负责异步调度重试
+ * - 每次尝试、退避和最终结果都会通知所有 RetryListener Bean；通过 runSingleAttempt 调用时只通知尝试，
+ * 退避和最终结果（含所有重试的尝试次数）由负责重试的调用方通知
  */
 @Component
 @Aspect
-// Before TX advisor
-@Order(Ordered.LOWEST_PRECEDENCE - 1)
+// Before TX advisor（见 CockroachDemoApplication 中的 @EnableTransactionManagement order）
+@Order(Ordered.LOWEST_PRECEDENCE - 2)
 public class RetryableTransactionAspect {
+    /** 非 null 时处于 runSingleAttempt 中，值为接收被调用的事务方法的回调 */
+    private static final ThreadLocal<Consumer<Method>> singleAttempt = new ThreadLocal<>();
+
     protected final Logger logger = LoggerFactory.getLogger(getClass());
 
+    @Autowired
+    private RetryPolicy retryPolicy;
+    @Autowired(required = false)
+    private List<RetryListener> listeners = Collections.emptyList();
+    /** 应用 @TransactionRetry 覆盖后的每个方法的策略 */
+    private final Map<Method, RetryPolicy> methodPolicies = new ConcurrentHashMap<>();
+
+    /**
+     * 在当前线程中执行 operation，期间调用的 @Transactional 方法只尝试一次，瞬时错误直接抛给调用方。
+     * 这些方法的尝试仍会通知 RetryListener#onAttempt，但不通知 onComplete，调用方在重试结束后自行通知。
+     *
+     * @param invokedMethod 接收每个被调用的事务方法，用于调用方向 RetryListener 通知退避和最终结果
+     */
+    public static <T> T runSingleAttempt(Supplier<T> operation, Consumer<Method> invokedMethod) {
+        Consumer<Method> previous = singleAttempt.get();
+        singleAttempt.set(invokedMethod);
+        try {
+            return operation.get();
+        } finally {
+            singleAttempt.set(previous);
+        }
+    }
+
     @Pointcut("@annotation(transactional)")
     public void anyTransactionBoundaryOperation(Transactional transactional) {
     }
@@ -45,54 +86,92 @@ public class RetryableTransactionAspect {
     @Around(value = "anyTransactionBoundaryOperation(transactional)", argNames = "pjp,transactional")
     public Object retryableOperation(ProceedingJoinPoint pjp, Transactional transactional)
             throws Throwable {
-        final int totalRetries = 30;
-        int numAttempts = 0;
-        AtomicLong backoffMillis = new AtomicLong(150);
-
         // 确保当前是非事务上下文（切面在事务之前被调用），这样可以在彻底回滚失败的事务后进行重试
         Assert.isTrue(!TransactionSynchronizationManager.isActualTransactionActive(), "TX active");
 
-        do {
+        Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+        RetryPolicy policy = resolvePolicy(method);
+        Consumer<Method> invokedMethod = singleAttempt.get();
+        boolean retry = invokedMethod == null;
+        if (!retry) {
+            invokedMethod.accept(method);
+        }
+        long start = System.nanoTime();
+        int numAttempts = 0;
+        long backoffMillis = 0;
+        while (true) {
+            long attemptStart = System.nanoTime();
+            Object result;
             try {
                 numAttempts++;
-                return pjp.proceed();
-            } catch (TransientDataAccessException | TransactionSystemException ex) {
-                // 捕获瞬时异常并应用重试逻辑与退避策略
-                handleTransientException(ex, numAttempts, totalRetries, pjp, backoffMillis);
-            } catch (UndeclaredThrowableException ex) {
-                Throwable t = ex.getUndeclaredThrowable();
-                // 如果被包装的异常是瞬时数据访问异常，按重试逻辑处理，否则向上抛出
-                if (t instanceof TransientDataAccessException) {
-                    handleTransientException(t, numAttempts, totalRetries, pjp, backoffMillis);
-                } else {
+                result = pjp.proceed();
+            } catch (Throwable ex) {
+                // 按 SQLSTATE 对异常分类，不可重试的异常（包括被 UndeclaredThrowableException 包装的）原样向上抛出
+                TransientErrorType errorType = TransientErrorType.classify(ex);
+                notifyAttempt(method, numAttempts, attemptStart, errorType);
+                if (!retry) {
+                    throw ex;
+                }
+                if (!policy.isRetryable(errorType)) {
+                    notifyComplete(method, numAttempts, start, ex);
                     throw ex;
                 }
+                if (numAttempts >= policy.getMaxAttempts(errorType)) {
+                    // 超过最大重试次数仍然失败时抛出 ConcurrencyFailureException
+                    ConcurrencyFailureException giveUp = new ConcurrencyFailureException("Too many transient errors ("
+                            + numAttempts + ") for method [" + pjp.getSignature().toLongString() + "]. Giving up!", ex);
+                    notifyComplete(method, numAttempts, start, giveUp);
+                    throw giveUp;
+                }
+                backoffMillis = policy.nextBackoffMillis(errorType, numAttempts, backoffMillis);
+                for (RetryListener listener : listeners) {
+                    listener.onBackoff(method, errorType, backoffMillis);
+                }
+                handleTransientException(ex, errorType, numAttempts, policy.getMaxAttempts(errorType), pjp,
+                        backoffMillis);
+                continue;
+            }
+            notifyAttempt(method, numAttempts, attemptStart, null);
+            if (retry) {
+                notifyComplete(method, numAttempts, start, null);
             }
-        } while (numAttempts < totalRetries);
+            return result;
+        }
+    }
+
+    private void notifyAttempt(Method method, int numAttempt, long attemptStart, TransientErrorType errorType) {
+        for (RetryListener listener : listeners) {
+            listener.onAttempt(method, numAttempt, System.nanoTime() - attemptStart, errorType);
+        }
+    }
+
+    private void notifyComplete(Method method, int numAttempts, long start, Throwable failure) {
+        for (RetryListener listener : listeners) {
+            listener.onComplete(method, numAttempts, System.nanoTime() - start, failure);
+        }
+    }
 
-        // 超过最大重试次数仍然失败时抛出 ConcurrencyFailureException
-        throw new ConcurrencyFailureException("Too many transient errors (" + numAttempts + ") for method ["
-                + pjp.getSignature().toLongString() + "]. Giving up!");
+    private RetryPolicy resolvePolicy(Method method) {
+        return methodPolicies.computeIfAbsent(method,
+                m -> retryPolicy.withOverrides(AnnotationUtils.findAnnotation(m, TransactionRetry.class)));
     }
 
-    private void handleTransientException(Throwable ex, int numAttempts, int totalAttempts,
-            ProceedingJoinPoint pjp, AtomicLong backoffMillis) {
-        // 记录重试日志（warn 级别），包含当前尝试次数、待重试等待时间和调用方法信息
+    private void handleTransientException(Throwable ex, TransientErrorType errorType, int numAttempts,
+            int totalAttempts, ProceedingJoinPoint pjp, long backoffMillis) {
+        // 记录重试日志（warn 级别），包含错误类别、当前尝试次数、待重试等待时间和调用方法信息
         if (logger.isWarnEnabled()) {
-            logger.warn("Transient data access exception (" + numAttempts + " of max " + totalAttempts + ") "
-                    + "detected (retry in " + backoffMillis + " ms) "
+            logger.warn("Transient data access exception [" + errorType + "] (" + numAttempts + " of max "
+                    + totalAttempts + ") detected (retry in " + backoffMillis + " ms) "
                     + "in method '" + pjp.getSignature().getDeclaringTypeName() + "." + pjp.getSignature().getName()
                     + "': " + ex.getMessage());
         }
-        if (backoffMillis.get() >= 0) {
+        if (backoffMillis > 0) {
             try {
-                // 线程睡眠做退避（backoff）以降低短期内的重试冲突
-                Thread.sleep(backoffMillis.get());
+                // 线程睡眠做退避（backoff）以降低短期内的重试冲突；需要不占用线程的重试时使用 AsyncRetryExecutor
+                Thread.sleep(backoffMillis);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
-            // 逐步增加退避时间（不超过 1500 ms）
-            backoffMillis.set(Math.min((long) (backoffMillis.get() * 1.5), 1500));
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,85 @@
+package com.example.cockroachdemo;
+
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import com.example.cockroachdemo.routing.DataSourceRoute;
+import com.example.cockroachdemo.routing.RoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * 多连接池配置：为点查询（read）、OLTP 写入（write）和批量处理（bulk）分别创建 Hikari 连接池，
+ * 避免长时间运行的批量导入占满连接而饿死短的点查询。
+ * - 连接参数来自 spring.datasource，每个池的 Hikari 参数（maximum-pool-size、connection-timeout 等）
+ * 来自 cockroachdemo.pools.<read|write|bulk>
+ * - 应用使用的 DataSource（@Primary）是包装在 LazyConnectionDataSourceProxy 中的 RoutingDataSource，
+ * 路由规则见 RoutingDataSource、MapperRouteInterceptor 和 @RouteTo
+ * - 每个池以 pool=<read|write|bulk> 标签导出 hikaricp.* 指标，其中 hikaricp.connections.acquire 为获取连接的等待时间
+ *
+ * 仅当 cockroachdemo.pools.enabled=true 时启用，否则使用 Spring Boot 自动配置的单个 DataSource。
+ */
+@Configuration
+@ConditionalOnProperty(name = "cockroachdemo.pools.enabled", havingValue = "true")
+public class RoutingDataSourceConfiguration {
+
+    @Bean(name = "readDataSource", destroyMethod = "close")
+    @ConfigurationProperties("cockroachdemo.pools.read")
+    public HikariDataSource readDataSource(DataSourceProperties properties, MeterRegistry meterRegistry) {
+        return newPool(properties, meterRegistry, "read");
+    }
+
+    @Bean(name = "writeDataSource", destroyMethod = "close")
+    @ConfigurationProperties("cockroachdemo.pools.write")
+    public HikariDataSource writeDataSource(DataSourceProperties properties, MeterRegistry meterRegistry) {
+        return newPool(properties, meterRegistry, "write");
+    }
+
+    @Bean(name = "bulkDataSource", destroyMethod = "close")
+    @ConfigurationProperties("cockroachdemo.pools.bulk")
+    public HikariDataSource bulkDataSource(DataSourceProperties properties, MeterRegistry meterRegistry) {
+        return newPool(properties, meterRegistry, "bulk");
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("readDataSource") DataSource readDataSource,
+            @Qualifier("writeDataSource") DataSource writeDataSource,
+            @Qualifier("bulkDataSource") DataSource bulkDataSource) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(DataSourceRoute.READ, readDataSource);
+        targets.put(DataSourceRoute.WRITE, writeDataSource);
+        targets.put(DataSourceRoute.BULK, bulkDataSource);
+        RoutingDataSource routingDataSource = new RoutingDataSource();
+        routingDataSource.setTargetDataSources(targets);
+        routingDataSource.setDefaultTargetDataSource(writeDataSource);
+        routingDataSource.afterPropertiesSet();
+
+        LazyConnectionDataSourceProxy lazyDataSource = new LazyConnectionDataSourceProxy();
+        lazyDataSource.setTargetDataSource(routingDataSource);
+        // 显式指定默认值，避免启动时为探测默认值而获取连接
+        lazyDataSource.setDefaultAutoCommit(true);
+        lazyDataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        return lazyDataSource;
+    }
+
+    private static HikariDataSource newPool(DataSourceProperties properties, MeterRegistry meterRegistry, String name) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        pool.setPoolName(name);
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return pool;
+    }
+}
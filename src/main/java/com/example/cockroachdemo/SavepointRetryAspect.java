@@ -0,0 +1,115 @@
+package com.example.cockroachdemo;
+
+import java.sql.Connection;
+import java.sql.Savepoint;
+
+import javax.sql.DataSource;
+
+import com.example.cockroachdemo.retry.TransientErrorType;
+
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.mybatis.spring.SqlSessionHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 基于 savepoint 的事务内重试切面（CockroachDB 客户端重试协议）：
+ * - 在 TX 拦截器开启事务之后执行，先发出 `SAVEPOINT cockroach_restart`
+ * - 方法执行或 `RELEASE SAVEPOINT cockroach_restart` 时遇到 40001（serialization failure），
+ * 执行 `ROLLBACK TO SAVEPOINT cockroach_restart` 后在同一个事务中重新执行方法
+ * - 重试复用同一个事务（和连接），事务保留其已提升的优先级，在高争用下更容易胜出，避免饿死
+ *
+ * 仅当 cockroachdemo.retry.savepoint.enabled=true 时启用；只读事务和同一事务内的嵌套调用不做处理。
+ * 超过 max-attempts 或遇到非 40001 错误时异常继续向外抛出，由 RetryableTransactionAspect 按原有方式重试整个事务。
+ */
+@Component
+@Aspect
+@ConditionalOnProperty(name = "cockroachdemo.retry.savepoint.enabled", havingValue = "true")
+// After TX advisor（见 CockroachDemoApplication 中的 @EnableTransactionManagement order）
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class SavepointRetryAspect {
+    static final String RESTART_SAVEPOINT = "cockroach_restart";
+
+    protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+    /** 当前线程中已由本切面管理 savepoint 的事务连接，用于识别同一事务内的嵌套调用 */
+    private final ThreadLocal<ConnectionHolder> activeTransaction = new ThreadLocal<>();
+
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+    @Value("${cockroachdemo.retry.savepoint.max-attempts:30}")
+    private int maxAttempts;
+
+    @Pointcut("@annotation(transactional)")
+    public void anyTransactionBoundaryOperation(Transactional transactional) {
+    }
+
+    @Around(value = "anyTransactionBoundaryOperation(transactional)", argNames = "pjp,transactional")
+    public Object savepointRetryOperation(ProceedingJoinPoint pjp, Transactional transactional) throws Throwable {
+        ConnectionHolder transaction = (ConnectionHolder) TransactionSynchronizationManager.getResource(dataSource);
+        if (transaction == null
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || transaction == activeTransaction.get()) {
+            return pjp.proceed();
+        }
+
+        ConnectionHolder previous = activeTransaction.get();
+        activeTransaction.set(transaction);
+        try {
+            Connection connection = DataSourceUtils.getConnection(dataSource);
+            // 必须是事务中的第一条语句
+            Savepoint savepoint = connection.setSavepoint(RESTART_SAVEPOINT);
+            int numAttempts = 0;
+            while (true) {
+                numAttempts++;
+                try {
+                    Object result = pjp.proceed();
+                    // 在 CockroachDB 中 RELEASE SAVEPOINT cockroach_restart 会提交事务的写入，40001 也可能在这里出现
+                    connection.releaseSavepoint(savepoint);
+                    return result;
+                } catch (Throwable ex) {
+                    if (numAttempts >= maxAttempts || TransientErrorType.classify(ex) != TransientErrorType.SERIALIZATION_FAILURE) {
+                        throw ex;
+                    }
+                    if (logger.isWarnEnabled()) {
+                        logger.warn("Serialization failure (" + numAttempts + " of max " + maxAttempts + ") "
+                                + "detected, rolling back to savepoint " + RESTART_SAVEPOINT + " "
+                                + "in method '" + pjp.getSignature().getDeclaringTypeName() + "."
+                                + pjp.getSignature().getName() + "': " + ex.getMessage());
+                    }
+                    connection.rollback(savepoint);
+                    resetSqlSession();
+                }
+            }
+        } finally {
+            activeTransaction.set(previous);
+        }
+    }
+
+    /**
+     * 丢弃 MyBatis 会话中在失败尝试里积累的状态：一级缓存中的查询结果和尚未 flush 的批处理语句。
+     * 对 Spring 管理的会话而言，rollback(true) 不会回滚数据库事务（由 Spring 负责），只清理执行器状态。
+     */
+    private void resetSqlSession() {
+        SqlSessionHolder holder = (SqlSessionHolder) TransactionSynchronizationManager.getResource(sqlSessionFactory);
+        if (holder != null) {
+            holder.getSqlSession().rollback(true);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.cockroachdemo;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记只执行一条 SQL 语句的 @Transactional 方法。
+ * 启用 cockroachdemo.autocommit.enabled（或运行时通过 SingleStatementAutocommit#setEnabled 打开）时，
+ * 这些方法不再开启显式事务，语句以隐式事务（autocommit）执行，见 SingleStatementAutocommit。
+ * 同时标记了 @FollowerRead 的方法在 follower reads 启用期间仍使用显式事务。
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface SingleStatement {
+}
@@ -0,0 +1,127 @@
+package com.example.cockroachdemo;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.Ordered;
+import org.springframework.core.PriorityOrdered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.interceptor.DelegatingTransactionAttribute;
+import org.springframework.transaction.interceptor.TransactionAttribute;
+import org.springframework.transaction.interceptor.TransactionAttributeSource;
+
+/**
+ * 单语句方法的 autocommit 快速路径：
+ * - 包装 TX 拦截器使用的 TransactionAttributeSource，启用时把 @SingleStatement 方法的传播行为改为 NOT_SUPPORTED
+ * - 方法中的语句在 autocommit 连接上作为隐式事务执行，省去显式 BEGIN / COMMIT 的往返和事务管理开销，
+ * 并且 CockroachDB 可以在服务端自动重试隐式事务中的冲突
+ * - RetryableTransactionAspect 仍然按 @Transactional 拦截这些方法，服务端无法自动重试的错误照常由客户端重试
+ * - NOT_SUPPORTED 仍然同步只读标记，只读方法照常路由到 READ 连接池
+ * - follower reads 启用期间 @FollowerRead 方法保持原有的事务属性：AS OF SYSTEM TIME 需要显式事务，
+ * 在 autocommit 下 FollowerReadAspect 找不到事务，会静默地读取最新数据
+ *
+ * cockroachdemo.autocommit.enabled 决定初始状态，可以在运行时通过 setEnabled 切换。
+ * 实现 PriorityOrdered，确保在自动代理创建器（以及事务 Advisor）之前注册，因此通过 EnvironmentAware 而不是 @Value 读取配置。
+ * 只应标记确实只有一条语句的方法，否则多条语句之间不再具有原子性。
+ */
+@Component
+public class SingleStatementAutocommit implements BeanPostProcessor, PriorityOrdered, EnvironmentAware,
+        BeanFactoryAware, SmartInitializingSingleton {
+    /** ProxyTransactionManagementConfiguration 中定义的 TransactionAttributeSource Bean 名称 */
+    static final String TRANSACTION_ATTRIBUTE_SOURCE_BEAN = "transactionAttributeSource";
+
+    private volatile boolean enabled;
+    private BeanFactory beanFactory;
+    /** 所有单例创建完成后才查找，不能在 BeanPostProcessor 注册时提前实例化切面 */
+    private volatile FollowerReadAspect followerReadAspect;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        enabled = environment.getProperty("cockroachdemo.autocommit.enabled", Boolean.class, false);
+    }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) {
+        this.beanFactory = beanFactory;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        followerReadAspect = beanFactory.getBeanProvider(FollowerReadAspect.class).getIfAvailable();
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (TRANSACTION_ATTRIBUTE_SOURCE_BEAN.equals(beanName) && bean instanceof TransactionAttributeSource) {
+            return new AutocommitTransactionAttributeSource((TransactionAttributeSource) bean);
+        }
+        return bean;
+    }
+
+    private class AutocommitTransactionAttributeSource implements TransactionAttributeSource {
+        private final TransactionAttributeSource delegate;
+        /** @SingleStatement 方法对应的 NOT_SUPPORTED 事务属性，其他方法不在其中 */
+        private final Map<Method, TransactionAttribute> autocommitAttributes = new ConcurrentHashMap<>();
+        private final Map<Method, Boolean> singleStatementMethods = new ConcurrentHashMap<>();
+        private final Map<Method, Boolean> followerReadMethods = new ConcurrentHashMap<>();
+
+        AutocommitTransactionAttributeSource(TransactionAttributeSource delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean isCandidateClass(Class<?> targetClass) {
+            return delegate.isCandidateClass(targetClass);
+        }
+
+        @Override
+        @Nullable
+        public TransactionAttribute getTransactionAttribute(Method method, @Nullable Class<?> targetClass) {
+            TransactionAttribute attribute = delegate.getTransactionAttribute(method, targetClass);
+            if (attribute == null || !enabled) {
+                return attribute;
+            }
+            Method specificMethod = AopUtils.getMostSpecificMethod(method, targetClass);
+            boolean singleStatement = singleStatementMethods.computeIfAbsent(specificMethod,
+                    m -> AnnotatedElementUtils.hasAnnotation(m, SingleStatement.class));
+            if (!singleStatement) {
+                return attribute;
+            }
+            FollowerReadAspect followerReads = followerReadAspect;
+            if (followerReads != null && followerReads.isEnabled() && followerReadMethods.computeIfAbsent(specificMethod,
+                    m -> AnnotatedElementUtils.hasAnnotation(m, FollowerRead.class))) {
+                return attribute;
+            }
+            return autocommitAttributes.computeIfAbsent(specificMethod, m -> new DelegatingTransactionAttribute(attribute) {
+                @Override
+                public int getPropagationBehavior() {
+                    return TransactionDefinition.PROPAGATION_NOT_SUPPORTED;
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.cockroachdemo;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+import javax.annotation.PostConstruct;
+
+import com.example.cockroachdemo.model.Account;
+import com.example.cockroachdemo.service.AccountService;
+import com.example.cockroachdemo.workload.KeyDistribution;
+import com.example.cockroachdemo.workload.KeyGenerator;
+import com.example.cockroachdemo.workload.WorkloadOperation;
+import com.example.cockroachdemo.workload.WorkloadRetryCounter;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+@Component
+@Profile("workload")
+/**
+ * 负载驱动（类似 YCSB 的 CommandLineRunner），在 workload profile 下代替 BasicExample 运行：
+ * - threads 个工作线程（virtual-threads=true 且运行在 Java 21+ 时使用虚拟线程）在 duration 时间内按比例执行
+ * 读取（getAccount）、转账（transferFundsChecked）和插入（addAccounts）
+ * - 账户 id 按 UNIFORM 或 ZIPFIAN 分布选择，用于重现热点账户上的争用
+ * - rate > 0 时按固定的目标速率（所有线程合计，ops/s）发出请求，延迟从计划发出时间算起，
+ * 因此修正了协调遗漏（coordinated omission）：系统变慢时积压的请求等待时间也计入延迟
+ * - 每 report-interval 输出一次各操作的吞吐量、错误数、重试次数和 p50/p99/p999/max 延迟，结束时输出全程汇总
+ *
+ * load=true 时先清空 accounts 表并通过 COPY 导入 accounts 个账户。
+ */
+public class WorkloadDriver implements CommandLineRunner {
+    private static final Logger logger = LoggerFactory.getLogger(WorkloadDriver.class);
+
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private WorkloadRetryCounter retryCounter;
+    @Value("${cockroachdemo.workload.threads:16}")
+    private int threads;
+    @Value("${cockroachdemo.workload.virtual-threads:false}")
+    private boolean virtualThreads;
+    @Value("${cockroachdemo.workload.rate:0}")
+    private double rate;
+    @Value("${cockroachdemo.workload.duration:60s}")
+    private Duration duration;
+    @Value("${cockroachdemo.workload.report-interval:10s}")
+    private Duration reportInterval;
+    @Value("${cockroachdemo.workload.accounts:10000}")
+    private int accounts;
+    @Value("${cockroachdemo.workload.initial-balance:1000000}")
+    private int initialBalance;
+    @Value("${cockroachdemo.workload.load:true}")
+    private boolean load;
+    @Value("${cockroachdemo.workload.read-weight:50}")
+    private int readWeight;
+    @Value("${cockroachdemo.workload.transfer-weight:45}")
+    private int transferWeight;
+    @Value("${cockroachdemo.workload.insert-weight:5}")
+    private int insertWeight;
+    @Value("${cockroachdemo.workload.key-distribution:UNIFORM}")
+    private KeyDistribution keyDistribution;
+    @Value("${cockroachdemo.workload.zipfian-constant:0.99}")
+    private double zipfianConstant;
+
+    private final Map<WorkloadOperation, OperationStats> stats = new EnumMap<>(WorkloadOperation.class);
+    private KeyGenerator keys;
+    private AtomicInteger nextInsertId;
+    private volatile boolean running;
+
+    @PostConstruct
+    void init() {
+        // 工作线程按权重之和调用 nextInt，负数或全为 0 的权重会使所有工作线程抛出异常而退出
+        if (readWeight < 0 || transferWeight < 0 || insertWeight < 0
+                || readWeight + transferWeight + insertWeight <= 0) {
+            throw new IllegalArgumentException("cockroachdemo.workload read/transfer/insert weights must be non-negative"
+                    + " with a positive sum but were " + readWeight + "/" + transferWeight + "/" + insertWeight);
+        }
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        accountService.createAccountsTable();
+        if (load) {
+            accountService.deleteAllAccounts();
+            accountService.bulkLoadAccounts(IntStream.range(0, accounts).mapToObj(id -> newAccount(id, initialBalance)));
+        }
+        keys = KeyGenerator.create(keyDistribution, accounts, zipfianConstant);
+        nextInsertId = new AtomicInteger(accounts);
+        for (WorkloadOperation operation : WorkloadOperation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+        logger.info("Running workload: {} threads, rate {} ops/s, {} keys ({}), mix read/transfer/insert = {}/{}/{}, duration {}",
+                threads, rate > 0 ? rate : "unlimited", accounts, keyDistribution, readWeight, transferWeight, insertWeight,
+                duration);
+
+        ExecutorService executor = null;
+        if (virtualThreads) {
+            executor = BulkInsertConfiguration.newVirtualThreadPerTaskExecutor();
+        }
+        if (executor == null) {
+            executor = BulkInsertConfiguration.newFixedThreadPool(threads, "workload-");
+        }
+        // 每个线程负责总速率的 1/threads
+        long intervalNanos = rate > 0 ? (long) (threads * 1_000_000_000L / rate) : 0;
+        running = true;
+        long start = System.nanoTime();
+        for (int i = 0; i < threads; i++) {
+            // 错开各线程的起始时间，避免所有线程同时发出请求
+            long threadStart = start + (intervalNanos * i) / threads;
+            executor.execute(() -> runWorker(threadStart, intervalNanos));
+        }
+
+        Map<WorkloadOperation, Histogram> totals = new EnumMap<>(WorkloadOperation.class);
+        Map<WorkloadOperation, long[]> totalCounts = new EnumMap<>(WorkloadOperation.class);
+        long end = start + duration.toNanos();
+        long lastReport = start;
+        while (System.nanoTime() < end) {
+            long sleepNanos = Math.min(reportInterval.toNanos(), end - System.nanoTime());
+            if (sleepNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(sleepNanos);
+            }
+            long now = System.nanoTime();
+            report("[" + TimeUnit.NANOSECONDS.toSeconds(now - start) + "s]", now - lastReport, totals, totalCounts);
+            lastReport = now;
+        }
+        running = false;
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        long now = System.nanoTime();
+        report("[" + TimeUnit.NANOSECONDS.toSeconds(now - start) + "s]", now - lastReport, totals, totalCounts);
+
+        System.out.println("workload summary:");
+        for (WorkloadOperation operation : WorkloadOperation.values()) {
+            Histogram histogram = totals.get(operation);
+            long[] counts = totalCounts.get(operation);
+            if (histogram != null && histogram.getTotalCount() > 0) {
+                print("  total", operation, histogram, counts[0], counts[1], now - start);
+            }
+        }
+    }
+
+    private void runWorker(long threadStart, long intervalNanos) {
+        long intendedStart = threadStart;
+        int totalWeight = readWeight + transferWeight + insertWeight;
+        while (running) {
+            if (intervalNanos > 0) {
+                long waitNanos = intendedStart - System.nanoTime();
+                if (waitNanos > 0) {
+                    LockSupport.parkNanos(waitNanos);
+                }
+            }
+            int choice = ThreadLocalRandom.current().nextInt(totalWeight);
+            WorkloadOperation operation = choice < readWeight ? WorkloadOperation.READ
+                    : choice < readWeight + transferWeight ? WorkloadOperation.TRANSFER
+                    : WorkloadOperation.INSERT;
+            long actualStart = System.nanoTime();
+            boolean failed = false;
+            try {
+                retryCounter.runAs(operation, () -> execute(operation));
+            } catch (RuntimeException ex) {
+                failed = true;
+                logger.debug("Workload operation {} failed: {}", operation, ex.getMessage());
+            }
+            long now = System.nanoTime();
+            // 有目标速率时延迟从计划发出时间算起（修正协调遗漏），否则即服务时间
+            long latencyStart = intervalNanos > 0 ? intendedStart : actualStart;
+            stats.get(operation).record(now - latencyStart, failed);
+            if (intervalNanos > 0) {
+                intendedStart += intervalNanos;
+            }
+        }
+    }
+
+    private void execute(WorkloadOperation operation) {
+        switch (operation) {
+            case READ:
+                accountService.getAccount(keys.nextKey());
+                break;
+            case TRANSFER:
+                int fromId = keys.nextKey();
+                int toId = keys.nextKey();
+                if (toId == fromId) {
+                    toId = (fromId + 1) % accounts;
+                }
+                accountService.transferFundsChecked(fromId, toId, 1);
+                break;
+            case INSERT:
+                accountService.addAccounts(newAccount(nextInsertId.getAndIncrement(), initialBalance));
+                break;
+            default:
+                throw new IllegalStateException("Unknown operation " + operation);
+        }
+    }
+
+    private void report(String label, long intervalNanos, Map<WorkloadOperation, Histogram> totals,
+            Map<WorkloadOperation, long[]> totalCounts) {
+        for (WorkloadOperation operation : WorkloadOperation.values()) {
+            OperationStats operationStats = stats.get(operation);
+            Histogram interval = operationStats.latency.getIntervalHistogram();
+            long errors = operationStats.errors.sumThenReset();
+            long retries = retryCounter.drainRetries(operation);
+            totals.computeIfAbsent(operation, o -> new Histogram(3)).add(interval);
+            long[] counts = totalCounts.computeIfAbsent(operation, o -> new long[2]);
+            counts[0] += errors;
+            counts[1] += retries;
+            if (interval.getTotalCount() > 0) {
+                print(label, operation, interval, errors, retries, intervalNanos);
+            }
+        }
+    }
+
+    private static void print(String label, WorkloadOperation operation, Histogram histogram, long errors, long retries,
+            long elapsedNanos) {
+        System.out.printf("%-8s %-8s ops=%-9d %10.1f ops/s  errors=%-6d retries=%-6d p50=%8.2fms p99=%8.2fms p999=%8.2fms max=%8.2fms%n",
+                label, operation, histogram.getTotalCount(), histogram.getTotalCount() * 1e9 / elapsedNanos,
+                errors, retries,
+                histogram.getValueAtPercentile(50) / 1e6, histogram.getValueAtPercentile(99) / 1e6,
+                histogram.getValueAtPercentile(99.9) / 1e6, histogram.getMaxValue() / 1e6);
+    }
+
+    private static Account newAccount(int id, int balance) {
+        Account account = new Account();
+        account.setId(id);
+        account.setBalance(balance);
+        return account;
+    }
+
+    private static class OperationStats {
+        /** 延迟（纳秒），3 位有效数字，自动扩展范围 */
+        private final Recorder latency = new Recorder(3);
+        private final LongAdder errors = new LongAdder();
+
+        void record(long latencyNanos, boolean failed) {
+            latency.recordValue(latencyNanos);
+            if (failed) {
+                errors.increment();
+            }
+        }
+    }
+}
@@ -7,13 +7,14 @@ import com.example.cockroachdemo.model.Account;
 import org.apache.ibatis.annotations.Flush;
 import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.executor.BatchResult;
 
 /**
  * 批量插入 Mapper:
  * - 通过在 Mapper 上使用批量执行器 (SqlSessionTemplate with ExecutorType.BATCH) 来收集多条 SQL
  * 并在调用 flush 时一起提交。
- * - 使用 upsert 插入/更新账户（演示目的）。
+ * - 使用 upsert 插入/更新账户（演示目的）；id 保证不重复时使用纯插入语句（insertNewAccount / insertNewAccounts）。
  */
 @Mapper
 public interface BatchAccountMapper {
@@ -24,6 +25,42 @@ public interface BatchAccountMapper {
     @Insert("upsert into accounts(id, balance) values(#{id}, #{balance})")
     void insertAccount(Account account);
 
+    /**
+     * 将多条账户数据合并为一条多行 upsert 语句（upsert ... values (...),(...),...）并加入当前批次。
+     * 相比逐行 insertAccount，数据库只需对整条语句规划/执行一次，可显著降低大批量写入时的逐语句开销。
+     * 注意：同一条语句中不能出现重复的 id（CockroachDB 不允许同一条 upsert 两次修改同一行），
+     * 去重由调用方负责；每行占用 2 个绑定参数，单条语句的行数需小于 PostgreSQL 协议的参数上限（32767 / 2）。
+     */
+    @Insert({
+            "<script>",
+            "upsert into accounts(id, balance) values",
+            "<foreach collection='accounts' item='account' separator=','>",
+            "(#{account.id}, #{account.balance})",
+            "</foreach>",
+            "</script>"
+    })
+    void insertAccounts(@Param("accounts") List<Account> accounts);
+
+    /**
+     * 与 insertAccount 相同，但使用纯插入语句：id 已存在时语句失败而不是覆盖已有账户。
+     * 用于 id 由 IdAllocator 分配、保证不重复的批量写入，数据库不需要先读取已有行。
+     */
+    @Insert("insert into accounts(id, balance) values(#{id}, #{balance})")
+    void insertNewAccount(Account account);
+
+    /**
+     * 与 insertAccounts 相同，但使用多行纯插入语句。
+     */
+    @Insert({
+            "<script>",
+            "insert into accounts(id, balance) values",
+            "<foreach collection='accounts' item='account' separator=','>",
+            "(#{account.id}, #{account.balance})",
+            "</foreach>",
+            "</script>"
+    })
+    void insertNewAccounts(@Param("accounts") List<Account> accounts);
+
     /**
      * 将当前批次中的所有 SQL 提交并返回执行结果的详情（BatchResult 列表）。
      * 该方法由 MyBatis 的 @Flush 注解标注，用于在批量操作中显式触发批提交。
@@ -0,0 +1,154 @@
+package com.example.cockroachdemo.batchmapper;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import com.example.cockroachdemo.model.Account;
+import com.example.cockroachdemo.model.BatchResults;
+import com.example.cockroachdemo.routing.DataSourceRoute;
+import com.example.cockroachdemo.routing.RouteTo;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
+import org.springframework.stereotype.Component;
+
+/**
+ * 基于 COPY 的流式批量导入器：
+ * - 通过 PostgreSQL 驱动的 CopyManager 执行 `COPY accounts FROM STDIN`，将账户数据以文本格式流式发送到数据库
+ * - 每行直接编码为 ASCII 字节写入一个可复用的缓冲区，缓冲区写满后作为一个 CopyData 消息发送，
+ * 不经过 MyBatis 的参数映射，也不需要在内存中保留全部数据
+ *
+ * 注意：COPY 是纯插入语义（不是 upsert），遇到已存在的 id 会失败。
+ * 连接通过 DataSourceUtils 获取：若调用方处于 Spring 事务中则加入该事务，否则以自动提交方式执行。
+ * 启用多连接池时使用 bulk 连接池。
+ */
+@Component
+@RouteTo(DataSourceRoute.BULK)
+public class CopyAccountLoader {
+    static final String COPY_SQL = "COPY accounts (id, balance) FROM STDIN";
+    /** 单行最大字节数：两个 int（各含符号最多 11 个字符）+ 制表符 + 换行符 */
+    private static final int MAX_ROW_BYTES = 2 * 11 + 2;
+    private static final byte[] MIN_INT_BYTES = Integer.toString(Integer.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    @Autowired
+    private DataSource dataSource;
+    /** 发送缓冲区大小（字节），缓冲区写满后发送一个 CopyData 消息 */
+    @Value("${cockroachdemo.copy.buffer-size:65536}")
+    private int bufferSize;
+
+    /**
+     * 从 Iterator 中流式读取账户并通过 COPY 导入。
+     *
+     * @return BatchResults：numberOfBatches 为发送的缓冲区（CopyData 消息）数量，totalRowsAffected 为导入的行数
+     */
+    public BatchResults load(Iterator<Account> accounts) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+            try {
+                byte[] buffer = new byte[Math.max(bufferSize, MAX_ROW_BYTES)];
+                int position = 0;
+                int numberOfBatches = 0;
+                while (accounts.hasNext()) {
+                    if (buffer.length - position < MAX_ROW_BYTES) {
+                        copyIn.writeToCopy(buffer, 0, position);
+                        numberOfBatches++;
+                        position = 0;
+                    }
+                    Account account = accounts.next();
+                    position = writeInt(buffer, position, account.getId());
+                    buffer[position++] = '\t';
+                    position = writeInt(buffer, position, account.getBalance());
+                    buffer[position++] = '\n';
+                }
+                if (position > 0) {
+                    copyIn.writeToCopy(buffer, 0, position);
+                    numberOfBatches++;
+                }
+                long rowsCopied = copyIn.endCopy();
+                return new BatchResults(numberOfBatches, (int) rowsCopied);
+            } finally {
+                // 出错时取消 COPY，避免连接停留在 COPY 状态后被归还到连接池
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        } catch (SQLException ex) {
+            throw new SQLErrorCodeSQLExceptionTranslator(dataSource).translate("COPY accounts", COPY_SQL, ex);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * 从 Stream 中流式读取账户并通过 COPY 导入，导入结束后关闭该 Stream。
+     */
+    public BatchResults load(Stream<Account> accounts) {
+        try (Stream<Account> stream = accounts) {
+            return load(stream.iterator());
+        }
+    }
+
+    /**
+     * 使用生成器按序号 0..count-1 生成账户并通过 COPY 导入。
+     */
+    public BatchResults load(int count, IntFunction<Account> generator) {
+        return load(new Iterator<Account>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public Account next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return generator.apply(next++);
+            }
+        });
+    }
+
+    /**
+     * 将 int 以十进制 ASCII 形式写入缓冲区，返回写入后的位置。
+     */
+    static int writeInt(byte[] buffer, int position, int value) {
+        if (value == Integer.MIN_VALUE) {
+            System.arraycopy(MIN_INT_BYTES, 0, buffer, position, MIN_INT_BYTES.length);
+            return position + MIN_INT_BYTES.length;
+        }
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int end = position + digitCount(value);
+        int p = end;
+        do {
+            buffer[--p] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        return end;
+    }
+
+    private static int digitCount(int value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+}
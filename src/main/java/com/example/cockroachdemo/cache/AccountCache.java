@@ -0,0 +1,167 @@
+package com.example.cockroachdemo.cache;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import com.example.cockroachdemo.model.Account;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 进程内账户缓存（AccountMapper.findAccountById 的读穿缓存）：
+ * - 基于 Caffeine（W-TinyLFU 淘汰），容量上限 maximum-size，写入后 ttl 过期
+ * - 命中/未命中/淘汰统计通过 Micrometer 以 cache=accounts 导出，也可通过 getStats() 获取
+ * - 只缓存存在的账户（不做负缓存），返回给调用方的是副本
+ *
+ * 写操作在事务内调用 onWrite / onWriteAll，根据一致性模式处理：
+ * - STRICT：写事务开始时立即失效，并在事务结束（提交或回滚）后再次失效；写事务进行期间以及读开始后发生过写入时，
+ * 读到的结果不放入缓存，保证本进程内不会缓存到被并发写覆盖的旧值
+ * - BOUNDED_STALENESS：只在写事务提交后失效；并发读可能把旧值放回缓存，但最多保留 ttl 时间
+ * 两种模式下，其他进程/节点的写入都只能依靠 ttl 失效。仅当 cockroachdemo.cache.enabled=true 时生效。
+ */
+@Component
+public class AccountCache {
+    public enum Coherence {
+        STRICT,
+        BOUNDED_STALENESS
+    }
+
+    @Value("${cockroachdemo.cache.enabled:false}")
+    private boolean enabled;
+    @Value("${cockroachdemo.cache.maximum-size:10000}")
+    private long maximumSize;
+    @Value("${cockroachdemo.cache.ttl:5s}")
+    private Duration ttl;
+    @Value("${cockroachdemo.cache.coherence:STRICT}")
+    private Coherence coherence;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Cache<Integer, Account> cache;
+    /** 每次本地写入开始/结束时递增，用于识别读取期间发生的写入 */
+    private final AtomicLong writeEpoch = new AtomicLong();
+    /** 尚未结束的本地写事务数量 */
+    private final AtomicInteger writesInFlight = new AtomicInteger();
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        if (enabled) {
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, "accounts");
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 查询缓存，命中时返回账户副本，未命中返回 null。
+     */
+    public Account getIfPresent(int id) {
+        Account account = cache.getIfPresent(id);
+        return account == null ? null : copy(account);
+    }
+
+    /**
+     * 在从数据库加载之前调用，返回的令牌传给 completeLoad。
+     */
+    public long beginLoad() {
+        return writeEpoch.get();
+    }
+
+    /**
+     * 从数据库加载完成后调用：满足一致性模式的条件时把结果放入缓存。
+     */
+    public void completeLoad(int id, Optional<Account> loaded, long loadToken) {
+        if (!loaded.isPresent()) {
+            return;
+        }
+        if (coherence == Coherence.STRICT && (writesInFlight.get() > 0 || writeEpoch.get() != loadToken)) {
+            return;
+        }
+        cache.put(id, copy(loaded.get()));
+    }
+
+    /**
+     * 写入指定账户前调用（应在写事务内调用）。
+     */
+    public void onWrite(int... ids) {
+        if (!enabled) {
+            return;
+        }
+        registerInvalidation(() -> {
+            for (int id : ids) {
+                cache.invalidate(id);
+            }
+        });
+    }
+
+    /**
+     * 写入无法确定具体账户（批量 upsert、删除全部）前调用（应在写事务内调用）。
+     */
+    public void onWriteAll() {
+        if (!enabled) {
+            return;
+        }
+        registerInvalidation(cache::invalidateAll);
+    }
+
+    private void registerInvalidation(Runnable invalidation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            writeEpoch.incrementAndGet();
+            invalidation.run();
+            return;
+        }
+        boolean strict = coherence == Coherence.STRICT;
+        if (strict) {
+            writesInFlight.incrementAndGet();
+            writeEpoch.incrementAndGet();
+            invalidation.run();
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (strict) {
+                    writeEpoch.incrementAndGet();
+                    invalidation.run();
+                    writesInFlight.decrementAndGet();
+                } else if (status == STATUS_COMMITTED) {
+                    writeEpoch.incrementAndGet();
+                    invalidation.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * 命中、未命中与淘汰统计。
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    private static Account copy(Account account) {
+        Account copy = new Account();
+        copy.setId(account.getId());
+        copy.setBalance(account.getBalance());
+        return copy;
+    }
+}
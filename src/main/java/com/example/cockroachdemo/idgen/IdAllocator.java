@@ -0,0 +1,10 @@
+package com.example.cockroachdemo.idgen;
+
+/**
+ * 为新账户分配 id，实现必须是线程安全的，并保证同一个实现分配出的 id 互不重复（包括跨进程），
+ * 因此批量写入可以使用纯插入语句而不会覆盖已有账户。
+ * 注意：只保证分配出的 id 之间不重复，与调用方手动指定的 id 之间可能冲突。
+ */
+public interface IdAllocator {
+    int nextId();
+}
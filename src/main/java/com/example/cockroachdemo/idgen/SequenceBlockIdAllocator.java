@@ -0,0 +1,91 @@
+package com.example.cockroachdemo.idgen;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
+import org.springframework.stereotype.Component;
+
+/**
+ * 基于序列租用 id 块的分配器：
+ * - 每个线程持有自己的 id 块，块内的 id 无需任何同步即可分配；块用完后通过 nextval('account_id_blocks')
+ * 租用下一个块，序列值 n 对应序号区间 [n * block-size, (n + 1) * block-size)
+ * - 租用直接通过 JDBC 在调用方事务的连接上执行（DataSourceUtils，没有事务时以自动提交方式执行）：
+ * 调用方通常处于 BATCH 会话的事务中，不能再使用 SIMPLE 执行器的 AccountMapper；也不另外占用一个连接，
+ * 否则并发的工作线程数达到连接池大小时，每个线程都持有事务连接并等待第二个连接而互相阻塞。
+ * 序列在 CockroachDB 中不参与事务，租用的块不会因回滚而被重复使用
+ * - scatter=true（默认）时序号经过 31 位双射置换后作为 id，连续分配的 id 均匀分布在整个 id 空间，
+ * 写入分散到所有 range 而不是集中在末尾的一个 range；置换是双射，因此不会引入重复
+ *
+ * 所有进程必须使用相同的 block-size，否则不同进程租用的区间可能重叠。
+ * 重试的事务会分配新的 id，已租用但未使用的 id 被跳过；线程（包括虚拟线程）结束时其剩余的块也被丢弃。
+ * 序列由 AccountService.createAccountsTable 创建。
+ */
+@Component
+public class SequenceBlockIdAllocator implements IdAllocator {
+    /** id 为非负的 int，共 2^31 个 */
+    private static final long ID_SPACE = 1L << 31;
+    private static final int ID_MASK = Integer.MAX_VALUE;
+    static final String NEXT_BLOCK_SQL = "select nextval('account_id_blocks')";
+
+    @Autowired
+    private DataSource dataSource;
+    @Value("${cockroachdemo.id-allocator.block-size:1000}")
+    private int blockSize;
+    @Value("${cockroachdemo.id-allocator.scatter:true}")
+    private boolean scatter;
+
+    private final ThreadLocal<Block> blocks = ThreadLocal.withInitial(Block::new);
+
+    @Override
+    public int nextId() {
+        Block block = blocks.get();
+        if (block.next == block.end) {
+            long start = nextBlock() * blockSize;
+            if (start + blockSize > ID_SPACE) {
+                throw new IllegalStateException("Account id space exhausted at block starting with " + start);
+            }
+            block.next = start;
+            block.end = start + blockSize;
+        }
+        int ordinal = (int) block.next++;
+        return scatter ? scatter(ordinal) : ordinal;
+    }
+
+    private long nextBlock() {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (PreparedStatement statement = connection.prepareStatement(NEXT_BLOCK_SQL);
+                ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        } catch (SQLException ex) {
+            throw new SQLErrorCodeSQLExceptionTranslator(dataSource).translate("lease id block", NEXT_BLOCK_SQL, ex);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * [0, 2^31) 上的双射：乘以奇数（模 2^31）和右移异或都是可逆的，组合后相邻的序号被映射到相距很远的 id。
+     */
+    static int scatter(int ordinal) {
+        int x = ordinal;
+        x = (x * 0x6A5D39E9) & ID_MASK;
+        x ^= x >>> 16;
+        x = (x * 0x2C1B3C6D) & ID_MASK;
+        x ^= x >>> 13;
+        return x;
+    }
+
+    private static class Block {
+        private long next;
+        private long end;
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.cockroachdemo.limit;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.example.cockroachdemo.retry.RetryListener;
+import com.example.cockroachdemo.retry.TransientErrorType;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * 自适应并发限制器（AIMD）：
+ * - 每个 @Transactional 方法维护独立的并发上限 limit
+ * - 调用无重试且延迟不超过基线延迟的 latency-tolerance 倍时，limit 加性增长（每次 +1/limit，约等于每轮 +1）
+ * - 调用发生重试、以瞬时错误失败或延迟超标时，limit 乘性下降（乘以 backoff-ratio）
+ * - 超过 limit 的调用最多排队 max-queue-size 个、最多等待 max-wait-millis，否则直接拒绝（shed）
+ *
+ * 通过 RetryListener 接收 RetryableTransactionAspect 报告的尝试次数和延迟，从而在重试风暴出现前主动降低并发，
+ * 使有效吞吐（goodput）保持在峰值附近。仅当 cockroachdemo.limiter.enabled=true 时启用。
+ */
+@Component
+@ConditionalOnProperty(name = "cockroachdemo.limiter.enabled", havingValue = "true")
+public class AdaptiveConcurrencyLimiter implements RetryListener {
+    @Value("${cockroachdemo.limiter.initial-limit:20}")
+    private int initialLimit;
+    @Value("${cockroachdemo.limiter.min-limit:1}")
+    private int minLimit;
+    @Value("${cockroachdemo.limiter.max-limit:200}")
+    private int maxLimit;
+    @Value("${cockroachdemo.limiter.backoff-ratio:0.9}")
+    private double backoffRatio;
+    @Value("${cockroachdemo.limiter.latency-tolerance:2.0}")
+    private double latencyTolerance;
+    @Value("${cockroachdemo.limiter.max-queue-size:100}")
+    private int maxQueueSize;
+    @Value("${cockroachdemo.limiter.max-wait-millis:1000}")
+    private long maxWaitMillis;
+
+    private final Map<Method, MethodLimit> limits = new ConcurrentHashMap<>();
+
+    /**
+     * 为 method 获取一个执行许可，必要时排队等待。
+     *
+     * @return 获得许可返回 true；队列已满或等待超时返回 false
+     */
+    public boolean acquire(Method method) throws InterruptedException {
+        return limitFor(method).acquire(maxQueueSize, TimeUnit.MILLISECONDS.toNanos(maxWaitMillis));
+    }
+
+    /**
+     * 归还 method 的执行许可。
+     */
+    public void release(Method method) {
+        limitFor(method).release();
+    }
+
+    /**
+     * 当前 method 的并发上限（未调用过时为初始值）。
+     */
+    public int getLimit(Method method) {
+        return (int) limitFor(method).limit;
+    }
+
+    @Override
+    public void onComplete(Method method, int numAttempts, long elapsedNanos, Throwable failure) {
+        boolean congested = numAttempts > 1
+                || (failure != null && TransientErrorType.classify(failure) != TransientErrorType.NOT_TRANSIENT);
+        limitFor(method).update(congested, elapsedNanos, latencyTolerance, backoffRatio, minLimit, maxLimit);
+    }
+
+    private MethodLimit limitFor(Method method) {
+        return limits.computeIfAbsent(method, m -> new MethodLimit(initialLimit));
+    }
+
+    /**
+     * 单个方法的限流状态。所有字段都在 lock 保护下读写（limit 的读取允许看到稍旧的值）。
+     */
+    static final class MethodLimit {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition available = lock.newCondition();
+        private volatile double limit;
+        private int inFlight;
+        private int waiting;
+        /** 基线延迟：取观测到的最小值，并缓慢向当前延迟靠拢，以适应负载变化 */
+        private double baselineNanos = Double.MAX_VALUE;
+
+        MethodLimit(int initialLimit) {
+            this.limit = initialLimit;
+        }
+
+        boolean acquire(int maxQueueSize, long maxWaitNanos) throws InterruptedException {
+            lock.lock();
+            try {
+                if (inFlight < (int) limit) {
+                    inFlight++;
+                    return true;
+                }
+                if (waiting >= maxQueueSize) {
+                    return false;
+                }
+                waiting++;
+                try {
+                    long remaining = maxWaitNanos;
+                    while (inFlight >= (int) limit) {
+                        if (remaining <= 0) {
+                            return false;
+                        }
+                        remaining = available.awaitNanos(remaining);
+                    }
+                    inFlight++;
+                    return true;
+                } finally {
+                    waiting--;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void release() {
+            lock.lock();
+            try {
+                inFlight--;
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void update(boolean congested, long elapsedNanos, double latencyTolerance, double backoffRatio,
+                int minLimit, int maxLimit) {
+            lock.lock();
+            try {
+                if (elapsedNanos < baselineNanos) {
+                    baselineNanos = elapsedNanos;
+                } else {
+                    baselineNanos += (elapsedNanos - baselineNanos) * 0.01;
+                }
+                double previous = limit;
+                if (congested || elapsedNanos > baselineNanos * latencyTolerance) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                } else {
+                    limit = Math.min(maxLimit, limit + 1.0 / limit);
+                }
+                // 上限提高后唤醒排队的调用
+                for (int i = (int) previous; i < (int) limit; i++) {
+                    available.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
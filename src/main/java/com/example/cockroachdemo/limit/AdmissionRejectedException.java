@@ -0,0 +1,14 @@
+package com.example.cockroachdemo.limit;
+
+import org.springframework.dao.NonTransientDataAccessResourceException;
+
+/**
+ * 并发限制器拒绝调用时抛出：当前方法的并发已达上限且等待队列已满，或在最大等待时间内未获得许可。
+ * 属于非瞬时异常：拒绝本身就是过载信号，RetryableTransactionAspect、AsyncRetryExecutor 等不应立即重试，
+ * 否则被拒绝的调用会重新排队，抵消限流的效果。调用方可以在更长的间隔后自行重新提交。
+ */
+public class AdmissionRejectedException extends NonTransientDataAccessResourceException {
+    public AdmissionRejectedException(String msg) {
+        super(msg);
+    }
+}
@@ -7,12 +7,24 @@ import com.example.cockroachdemo.model.Account;
 
 import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
 
 @Mapper
 public interface AccountMapper {
+    /**
+     * 账户的总余额：accounts 中的基础余额加上 account_stripes 中所有条带的余额。
+     * 查询账户的语句都使用这个表达式，调用方看到的余额与账户是否条带化无关；
+     * 只有 stripes > 0 的行才读取 account_stripes，未条带化账户的读取仍然只访问 accounts 表。
+     */
+    String TOTAL_BALANCE = "a.balance + CASE WHEN a.stripes > 0"
+            + " THEN coalesce((select CAST(sum(s.balance) AS INT8) from account_stripes s where s.id = a.id), 0)"
+            + " ELSE 0 END";
+
     /**
      * 删除 accounts 表中所有记录。请谨慎调用（演示使用）。
      * 
@@ -30,33 +42,114 @@ public interface AccountMapper {
     @Update("update accounts set balance=#{balance} where id=${id}")
     void updateAccount(Account account);
 
+    /**
+     * 设置账户的余额并取消条带化：在同一条语句中删除账户的所有条带并把 stripes 置为 0，
+     * 之后账户的总余额就是设置的值。
+     */
+    @Update({
+            "with deleted as (delete from account_stripes where id = #{id} returning id)",
+            "update accounts set balance = #{balance}, stripes = 0 where id = #{id}"
+    })
+    void replaceAccount(Account account);
+
     /**
      * 根据 id 查询单个账户，返回 Optional（找不到时为空）。
      */
-    @Select("select id, balance from accounts where id=#{id}")
+    @Select("select a.id, " + TOTAL_BALANCE + " as balance from accounts a where a.id=#{id}")
     Optional<Account> findAccountById(int id);
 
+    /**
+     * 根据多个 id 一次查询多个账户（一次网络往返）。id 数组作为单个数组参数绑定，
+     * 语句文本与 id 数量无关，可以复用同一个预编译语句；不存在的 id 不会出现在结果中。
+     */
+    @Select("select a.id, " + TOTAL_BALANCE + " as balance from accounts a where a.id = ANY(CAST(#{ids,typeHandler=com.example.cockroachdemo.mapper.IntArrayTypeHandler} AS INT8[]))")
+    List<Account> findAccountsByIds(@Param("ids") int[] ids);
+
+    /**
+     * 根据多个 id 查询账户并对这些行加锁（select ... for update），用于在同一事务中先读后写，减少写写冲突导致的重试。
+     * 返回的是 accounts 中的基础余额，不包含条带（见 account_stripes）。
+     */
+    @Select("select id, balance from accounts where id = ANY(CAST(#{ids,typeHandler=com.example.cockroachdemo.mapper.IntArrayTypeHandler} AS INT8[])) for update")
+    List<Account> findAccountsByIdsForUpdate(@Param("ids") int[] ids);
+
+    /**
+     * 用一条语句为多个账户增加余额变化量：ids[i] 的余额增加 deltas[i]（可以为负）。
+     * 两个数组各作为一个参数绑定并通过 unnest 展开，语句文本与账户数量无关。
+     * 余额小于 0 时由 balance_gt_0 约束拒绝整条语句。
+     *
+     * @return 更新的行数
+     */
+    @Update({
+            "update accounts set balance = accounts.balance + d.delta from (select",
+            "unnest(CAST(#{ids,typeHandler=com.example.cockroachdemo.mapper.IntArrayTypeHandler} AS INT8[])) as id,",
+            "unnest(CAST(#{deltas,typeHandler=com.example.cockroachdemo.mapper.IntArrayTypeHandler} AS INT8[])) as delta",
+            ") as d where accounts.id = d.id"
+    })
+    int addToBalances(@Param("ids") int[] ids, @Param("deltas") int[] deltas);
+
     /**
      * 查询所有账户并按 id 排序。
      */
-    @Select("select id, balance from accounts order by id")
+    @Select("select a.id, " + TOTAL_BALANCE + " as balance from accounts a order by a.id")
     List<Account> findAllAccounts();
 
+    /**
+     * 键集分页查询：返回 id 大于 afterId 的前 limit 个账户（afterId 为 null 时从第一行开始）。
+     * 通过主键索引直接定位起点，不使用 OFFSET，因此任意一页的代价都与第一页相同。
+     */
+    @Select({
+            "<script>",
+            "select a.id, " + TOTAL_BALANCE + " as balance from accounts a",
+            "<if test='afterId != null'>where a.id &gt; #{afterId}</if>",
+            "order by a.id limit #{limit}",
+            "</script>"
+    })
+    List<Account> findAccountsAfter(@Param("afterId") Integer afterId, @Param("limit") int limit);
+
+    /**
+     * 以游标方式按 id 顺序流式读取所有账户。
+     * 必须在事务内使用（PostgreSQL 驱动只在非自动提交模式下按 fetch size 分批拉取结果），
+     * 每批的行数由 MyBatis 的 defaultFetchSize 决定（见 MyBatisConfiguration），游标需由调用方关闭。
+     */
+    @Select("select a.id, " + TOTAL_BALANCE + " as balance from accounts a order by a.id")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY)
+    Cursor<Account> scanAllAccounts();
+
     /**
      * 转账操作（使用 upsert）：
      * - 从 fromId 的账户中扣除 amount
      * - 向 toId 的账户中增加 amount
      * - 使用 upsert 可以在目标不存在时进行插入（演示使用），真实系统中请根据业务需求做更严格的校验
+     * - 任一账户已条带化（stripes > 0）时不写入任何行，由调用方改用条带化的转账逻辑
      * 
-     * @return 受影响的行数（通常为 2，即两个账户的更新/插入）
+     * @return 受影响的行数（通常为 2，即两个账户的更新/插入；涉及条带化账户时为 0）
      */
     @Update({
-            "upsert into accounts (id, balance) values",
+            "upsert into accounts (id, balance) select v.id, v.balance from (values",
             "(#{fromId}, ((select balance from accounts where id = #{fromId}) - #{amount})),",
             "(#{toId}, ((select balance from accounts where id = #{toId}) + #{amount}))",
+            ") as v(id, balance)",
+            "where not exists (select 1 from accounts where id in (#{fromId}, #{toId}) and stripes > 0)"
     })
     int transfer(@Param("fromId") int fromId, @Param("toId") int toId, @Param("amount") int amount);
 
+    /**
+     * 单语句转账：在一条 update 中完成有条件的扣款和入账，并通过 returning 返回两个账户的新余额。
+     * - 只有两个账户都存在、都未条带化且 fromId 的余额不少于 amount 时才会更新，否则不更新任何行（不会创建账户）
+     * - 返回被更新的两个账户；返回空列表表示转账被拒绝
+     * 语句带有 returning，因此用 @Select 执行，并禁用一级缓存以免同一会话中重复调用时命中缓存。
+     * 调用方需要保证 fromId != toId。
+     */
+    @Select({
+            "update accounts set balance = balance + case when id = #{toId} then #{amount} else -#{amount} end",
+            "where id in (#{fromId}, #{toId})",
+            "and (select balance from accounts where id = #{fromId}) >= #{amount}",
+            "and (select count(*) from accounts where id in (#{fromId}, #{toId}) and stripes = 0) = 2",
+            "returning id, balance"
+    })
+    @Options(flushCache = Options.FlushCachePolicy.TRUE, useCache = false)
+    List<Account> transferReturningBalances(@Param("fromId") int fromId, @Param("toId") int toId, @Param("amount") int amount);
+
     /**
      * 创建 accounts 表（如果不存在）。
      * 表定义示例：id 主键，balance 非负约束（CHECK）。
@@ -65,6 +158,113 @@ public interface AccountMapper {
     @Update("CREATE TABLE IF NOT EXISTS accounts (id INT PRIMARY KEY, balance INT, CONSTRAINT balance_gt_0 CHECK (balance >= 0))")
     void createAccountsTable();
 
+    /**
+     * 创建 account_stripes 表（如果不存在）：热点账户的余额分散到多个条带行上，(id, stripe) 为主键，
+     * 每个条带的余额各自非负；删除账户时级联删除其条带。
+     * 账户的条带数量记录在 accounts.stripes 中（见 addStripesColumn），与条带行在同一事务中修改。
+     */
+    @Update({
+            "CREATE TABLE IF NOT EXISTS account_stripes (",
+            "id INT8 NOT NULL REFERENCES accounts (id) ON DELETE CASCADE,",
+            "stripe INT8 NOT NULL,",
+            "balance INT8 NOT NULL,",
+            "PRIMARY KEY (id, stripe),",
+            "CONSTRAINT stripe_balance_gt_0 CHECK (balance >= 0))"
+    })
+    void createAccountStripesTable();
+
+    /**
+     * 创建 SequenceBlockIdAllocator 使用的序列（如果不存在），每个序列值代表一个 id 块。
+     */
+    @Update("CREATE SEQUENCE IF NOT EXISTS account_id_blocks MINVALUE 0 START 0")
+    void createAccountIdSequence();
+
+    /**
+     * 为 accounts 表增加 stripes 列（如果不存在）：账户的条带数量，0 表示未条带化。
+     * 转账语句直接在语句中读取该列来决定写入基础余额还是条带，不依赖客户端缓存。
+     */
+    @Update("ALTER TABLE accounts ADD COLUMN IF NOT EXISTS stripes INT8 NOT NULL DEFAULT 0")
+    void addStripesColumn();
+
+    /**
+     * 设置账户的条带数量。
+     */
+    @Update("update accounts set stripes = #{stripes} where id = #{id}")
+    int updateStripeCount(@Param("id") int id, @Param("stripes") int stripes);
+
+    /**
+     * 返回所有已条带化的账户 id。
+     */
+    @Select("select id from accounts where stripes > 0 order by id")
+    List<Integer> findStripedAccountIds();
+
+    /**
+     * 读取多个账户的所有条带（不加锁），每个条带作为一个 Account（id 为账户 id，balance 为该条带的余额）返回。
+     */
+    @Select("select id, balance from account_stripes where id = ANY(CAST(#{ids,typeHandler=com.example.cockroachdemo.mapper.IntArrayTypeHandler} AS INT8[])) order by id, stripe")
+    List<Account> findStripesByIds(@Param("ids") int[] ids);
+
+    /**
+     * 按条带编号顺序读取账户所有条带的余额并加锁（select ... for update）。
+     */
+    @Select("select balance from account_stripes where id = #{id} order by stripe for update")
+    List<Integer> findStripeBalancesForUpdate(int id);
+
+    /**
+     * 用一条语句写入账户的全部条带：条带 i 的余额为 balances[i]，已存在的条带被覆盖。
+     */
+    @Update({
+            "upsert into account_stripes (id, stripe, balance)",
+            "select #{id}, t.stripe - 1, t.balance from",
+            "unnest(CAST(#{balances,typeHandler=com.example.cockroachdemo.mapper.IntArrayTypeHandler} AS INT8[]))",
+            "with ordinality as t(balance, stripe)"
+    })
+    int upsertStripes(@Param("id") int id, @Param("balances") int[] balances);
+
+    /**
+     * 删除账户的所有条带。
+     */
+    @Delete("delete from account_stripes where id = #{id}")
+    int deleteStripes(int id);
+
+    /**
+     * 向条带化账户的一个随机条带入账，条带编号按账户当前的 stripes 在语句中选择。
+     *
+     * @return 更新的行数，0 表示账户不存在或未条带化
+     */
+    @Update({
+            "update account_stripes set balance = balance + #{amount} where id = #{id} and stripe =",
+            "(select CAST(floor(random() * stripes) AS INT8) from accounts where id = #{id} and stripes > 0)"
+    })
+    int creditRandomStripe(@Param("id") int id, @Param("amount") int amount);
+
+    /**
+     * 从条带化账户的一个随机条带扣款，该条带余额不足时不更新。
+     *
+     * @return 更新的行数，0 表示账户不存在、未条带化或选中的条带余额不足
+     */
+    @Update({
+            "update account_stripes set balance = balance - #{amount} where id = #{id} and balance >= #{amount} and stripe =",
+            "(select CAST(floor(random() * stripes) AS INT8) from accounts where id = #{id} and stripes > 0)"
+    })
+    int debitRandomStripe(@Param("id") int id, @Param("amount") int amount);
+
+    /**
+     * 向未条带化账户的基础余额入账。
+     *
+     * @return 更新的行数，0 表示账户不存在或已条带化
+     */
+    @Update("update accounts set balance = balance + #{amount} where id = #{id} and stripes = 0")
+    int creditAccount(@Param("id") int id, @Param("amount") int amount);
+
+    /**
+     * 从未条带化账户的基础余额扣款，余额不足时不更新。
+     *
+     * @return 更新的行数，0 表示账户不存在、已条带化或余额不足
+     */
+    @Update("update accounts set balance = balance - #{amount} where id = #{id} and stripes = 0 and balance >= #{amount}")
+    int debitAccount(@Param("id") int id, @Param("amount") int amount);
+
     /**
      * 统计 accounts 表中行数。
      * 
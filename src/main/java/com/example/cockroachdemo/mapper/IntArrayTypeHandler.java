@@ -0,0 +1,56 @@
+package com.example.cockroachdemo.mapper;
+
+import java.sql.Array;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.postgresql.PGConnection;
+
+/**
+ * int[] 与 SQL 数组之间的 MyBatis 类型处理器：
+ * 绑定参数时通过 PostgreSQL 驱动的 PGConnection#createArrayOf 直接编码原始 int 数组（无需装箱为 Integer[]），
+ * 用于 `where id = ANY(?)` 这类一次传入多个 id 的查询。
+ */
+public class IntArrayTypeHandler extends BaseTypeHandler<int[]> {
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, int[] parameter, JdbcType jdbcType)
+            throws SQLException {
+        Array array = ps.getConnection().unwrap(PGConnection.class).createArrayOf("int4", parameter);
+        ps.setArray(i, array);
+    }
+
+    @Override
+    public int[] getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return toIntArray(rs.getArray(columnName));
+    }
+
+    @Override
+    public int[] getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return toIntArray(rs.getArray(columnIndex));
+    }
+
+    @Override
+    public int[] getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return toIntArray(cs.getArray(columnIndex));
+    }
+
+    private static int[] toIntArray(Array array) throws SQLException {
+        if (array == null) {
+            return null;
+        }
+        try {
+            Object[] values = (Object[]) array.getArray();
+            int[] result = new int[values.length];
+            for (int i = 0; i < values.length; i++) {
+                result[i] = ((Number) values[i]).intValue();
+            }
+            return result;
+        } finally {
+            array.free();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.cockroachdemo.metrics;
+
+import java.util.List;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.ibatis.executor.BatchResult;
+import org.springframework.stereotype.Component;
+
+/**
+ * 批处理指标（Micrometer）：记录每次 BatchAccountMapper.flush() 的结果分布
+ * - cockroach.batch.flush.statements：每次 flush 发送的语句数（JDBC 批中的条目数）
+ * - cockroach.batch.flush.rows：每次 flush 影响的行数
+ */
+@Component
+public class BatchMetrics {
+    private final DistributionSummary statementsPerFlush;
+    private final DistributionSummary rowsPerFlush;
+
+    public BatchMetrics(MeterRegistry registry) {
+        statementsPerFlush = DistributionSummary.builder("cockroach.batch.flush.statements")
+                .description("Statements sent per batch flush")
+                .publishPercentileHistogram()
+                .register(registry);
+        rowsPerFlush = DistributionSummary.builder("cockroach.batch.flush.rows")
+                .description("Rows affected per batch flush")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /**
+     * 记录一次 flush 返回的 BatchResult 列表。
+     */
+    public void recordFlush(List<BatchResult> results) {
+        long statements = 0;
+        long rows = 0;
+        for (BatchResult result : results) {
+            int[] updateCounts = result.getUpdateCounts();
+            statements += updateCounts.length;
+            for (int updateCount : updateCounts) {
+                rows += updateCount;
+            }
+        }
+        statementsPerFlush.record(statements);
+        rowsPerFlush.record(rows);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.cockroachdemo.metrics;
+
+/**
+ * 一条被捕获的慢语句记录（耗时超过阈值的 mapped statement 调用）。
+ */
+public class SlowStatement {
+    private final String statementId;
+    private final String sql;
+    private final long elapsedMicros;
+    private final long rows;
+    private final long timestampMillis;
+
+    public SlowStatement(String statementId, String sql, long elapsedMicros, long rows, long timestampMillis) {
+        this.statementId = statementId;
+        this.sql = sql;
+        this.elapsedMicros = elapsedMicros;
+        this.rows = rows;
+        this.timestampMillis = timestampMillis;
+    }
+
+    public String getStatementId() {
+        return statementId;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public long getElapsedMicros() {
+        return elapsedMicros;
+    }
+
+    /** 影响或返回的行数，未知时为 -1 */
+    public long getRows() {
+        return rows;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+}
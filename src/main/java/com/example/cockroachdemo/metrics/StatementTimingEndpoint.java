@@ -0,0 +1,29 @@
+package com.example.cockroachdemo.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator 端点 `statementtiming`：导出 StatementTimingInterceptor 收集的每条语句统计和慢语句环形缓冲区。
+ */
+@Component
+@Endpoint(id = "statementtiming")
+public class StatementTimingEndpoint {
+    private final StatementTimingInterceptor interceptor;
+
+    public StatementTimingEndpoint(StatementTimingInterceptor interceptor) {
+        this.interceptor = interceptor;
+    }
+
+    @ReadOperation
+    public Map<String, Object> statementTiming() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("statements", interceptor.getStatementStats());
+        result.put("slowStatements", interceptor.getSlowStatements());
+        return result;
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.cockroachdemo.metrics;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.BatchExecutorException;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * MyBatis 插件：按 statement id 统计每个 mapped statement 的调用次数、耗时和影响/返回行数，
+ * 并把超过阈值的调用捕获到一个固定大小的环形缓冲区中。
+ * - 拦截 Executor 的 update / query / queryCursor / flushStatements
+ * - 在 BATCH 执行器下 update 只是把语句加入批次，真正的执行耗时记录在 flushStatements 上：
+ * 耗时按各 BatchResult 包含的语句数拆分，分别记到 "<id>!flush" 上，行数按 updateCounts 记到对应的 statement 上
+ * - 抛出异常的调用同样计入 count 和耗时，并额外计入 errors；失败的 flush 按 BatchExecutorException 中
+ * 已执行和失败的批次拆分
+ *
+ * 该插件包裹每一次数据库调用，热路径只做一次 map 查找、两次 System.nanoTime() 和 LongAdder 累加；
+ * 只有慢语句才会生成 SQL 文本和记录对象。
+ */
+@Component
+@Intercepts({
+        @Signature(type = Executor.class, method = "update", args = { MappedStatement.class, Object.class }),
+        @Signature(type = Executor.class, method = "query",
+                args = { MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class }),
+        @Signature(type = Executor.class, method = "query",
+                args = { MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class,
+                        BoundSql.class }),
+        @Signature(type = Executor.class, method = "queryCursor",
+                args = { MappedStatement.class, Object.class, RowBounds.class }),
+        @Signature(type = Executor.class, method = "flushStatements", args = {})
+})
+public class StatementTimingInterceptor implements Interceptor {
+    private static final String FLUSH_SUFFIX = "!flush";
+
+    private final Map<String, StatementStats> stats = new ConcurrentHashMap<>();
+    private final long slowThresholdNanos;
+    private final AtomicReferenceArray<SlowStatement> slowStatements;
+    private final AtomicLong slowStatementCursor = new AtomicLong();
+
+    public StatementTimingInterceptor(
+            @Value("${cockroachdemo.statement-timing.slow-threshold-millis:100}") long slowThresholdMillis,
+            @Value("${cockroachdemo.statement-timing.slow-buffer-size:256}") int slowBufferSize) {
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+        this.slowStatements = new AtomicReferenceArray<>(Math.max(slowBufferSize, 1));
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        long start = System.nanoTime();
+        Object result = null;
+        Throwable failure = null;
+        try {
+            result = invocation.proceed();
+            return result;
+        } catch (Throwable ex) {
+            failure = ex;
+            throw ex;
+        } finally {
+            long elapsedNanos = System.nanoTime() - start;
+            Object[] args = invocation.getArgs();
+            if (args.length == 0) {
+                recordFlush(result, failure, elapsedNanos);
+            } else {
+                MappedStatement ms = (MappedStatement) args[0];
+                long rows = failure == null ? rowCount(result) : -1;
+                statsFor(ms.getId()).record(elapsedNanos, rows, failure != null);
+                if (elapsedNanos >= slowThresholdNanos) {
+                    captureSlowStatement(ms.getId(), ms.getBoundSql(args[1]).getSql(), elapsedNanos, rows);
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void recordFlush(Object result, Throwable failure, long elapsedNanos) {
+        List<BatchResult> batchResults;
+        BatchResult failed = null;
+        if (failure == null) {
+            batchResults = (List<BatchResult>) result;
+        } else if (unwrap(failure) instanceof BatchExecutorException) {
+            BatchExecutorException batchFailure = (BatchExecutorException) unwrap(failure);
+            failed = batchFailure.getFailedBatchResult();
+            batchResults = new ArrayList<>(batchFailure.getSuccessfulBatchResults());
+            batchResults.add(failed);
+        } else {
+            // 无法得知失败的 flush 中有哪些语句
+            return;
+        }
+        if (batchResults.isEmpty()) {
+            return;
+        }
+        long totalStatements = 0;
+        for (BatchResult batchResult : batchResults) {
+            totalStatements += Math.max(batchResult.getParameterObjects().size(), 1);
+        }
+        for (BatchResult batchResult : batchResults) {
+            long rows = 0;
+            // 失败的 BatchResult 没有 updateCounts
+            if (batchResult.getUpdateCounts() != null) {
+                for (int updateCount : batchResult.getUpdateCounts()) {
+                    rows += Math.max(updateCount, 0);
+                }
+            }
+            statsFor(batchResult.getMappedStatement().getId()).addRows(rows);
+            // 同一次 flush 内各语句的耗时无法单独测量，按语句数比例分摊给每个 BatchResult
+            long statements = Math.max(batchResult.getParameterObjects().size(), 1);
+            long shareNanos = elapsedNanos * statements / totalStatements;
+            String flushId = batchResult.getMappedStatement().getId() + FLUSH_SUFFIX;
+            statsFor(flushId).record(shareNanos, rows, batchResult == failed);
+            if (shareNanos >= slowThresholdNanos) {
+                captureSlowStatement(flushId, batchResult.getSql(), shareNanos, rows);
+            }
+        }
+    }
+
+    /**
+     * Invocation.proceed 通过反射调用，被拦截方法抛出的异常包装在 InvocationTargetException 中。
+     */
+    private static Throwable unwrap(Throwable failure) {
+        return failure instanceof InvocationTargetException
+                ? ((InvocationTargetException) failure).getTargetException()
+                : failure;
+    }
+
+    private static long rowCount(Object result) {
+        if (result instanceof Integer) {
+            // BATCH 执行器的 update 返回一个负的占位值，此时行数未知
+            int count = (Integer) result;
+            return count >= 0 ? count : -1;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        return -1;
+    }
+
+    private StatementStats statsFor(String statementId) {
+        StatementStats statementStats = stats.get(statementId);
+        if (statementStats == null) {
+            statementStats = stats.computeIfAbsent(statementId, id -> new StatementStats());
+        }
+        return statementStats;
+    }
+
+    private void captureSlowStatement(String statementId, String sql, long elapsedNanos, long rows) {
+        SlowStatement slowStatement = new SlowStatement(statementId, sql,
+                TimeUnit.NANOSECONDS.toMicros(elapsedNanos), rows, System.currentTimeMillis());
+        int index = (int) (slowStatementCursor.getAndIncrement() % slowStatements.length());
+        slowStatements.set(index, slowStatement);
+    }
+
+    /**
+     * 导出环形缓冲区中的慢语句，按时间由新到旧排列。
+     */
+    public List<SlowStatement> getSlowStatements() {
+        int capacity = slowStatements.length();
+        long end = slowStatementCursor.get();
+        List<SlowStatement> result = new ArrayList<>(capacity);
+        for (long i = end - 1; i >= Math.max(0, end - capacity); i--) {
+            SlowStatement slowStatement = slowStatements.get((int) (i % capacity));
+            if (slowStatement != null) {
+                result.add(slowStatement);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 导出每个 statement id 的累计统计：count、errors、totalMicros、maxMicros、rows。
+     */
+    public Map<String, Map<String, Long>> getStatementStats() {
+        Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+        stats.forEach((id, statementStats) -> result.put(id, statementStats.snapshot()));
+        return result;
+    }
+
+    private static final class StatementStats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder rows = new LongAdder();
+
+        void record(long elapsedNanos, long rowCount, boolean error) {
+            count.increment();
+            if (error) {
+                errors.increment();
+            }
+            totalNanos.add(elapsedNanos);
+            maxNanos.accumulate(elapsedNanos);
+            addRows(rowCount);
+        }
+
+        void addRows(long rowCount) {
+            if (rowCount > 0) {
+                rows.add(rowCount);
+            }
+        }
+
+        Map<String, Long> snapshot() {
+            Map<String, Long> snapshot = new LinkedHashMap<>();
+            snapshot.put("count", count.sum());
+            snapshot.put("errors", errors.sum());
+            snapshot.put("totalMicros", TimeUnit.NANOSECONDS.toMicros(totalNanos.sum()));
+            snapshot.put("maxMicros", TimeUnit.NANOSECONDS.toMicros(maxNanos.get()));
+            snapshot.put("rows", rows.sum());
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.cockroachdemo.metrics;
+
+import java.lang.reflect.Method;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.example.cockroachdemo.retry.RetryListener;
+import com.example.cockroachdemo.retry.TransientErrorType;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+/**
+ * 事务重试指标（Micrometer）：作为 RetryListener 接收 RetryableTransactionAspect 的回调，按方法记录
+ * - cockroach.tx.attempts：尝试次数（计数器）
+ * - cockroach.tx.retries：按重试原因（TransientErrorType）统计的重试次数（计数器）
+ * - cockroach.tx.attempts.per.call：每次调用的尝试次数分布
+ * - cockroach.tx.latency：端到端延迟（含所有重试和退避），按 outcome=success/failure 区分
+ * - cockroach.tx.attempt.latency：单次尝试的延迟，按 outcome=success 或错误类别区分
+ * - cockroach.tx.backoff：退避等待时间
+ *
+ * 结合 attempt.latency 与 retries/backoff，可以区分延迟回退是由争用（重试、退避增加）还是由 SQL 本身变慢导致。
+ * 每个方法的 Meter 在首次调用时创建并缓存，热路径上不再查找或分配标签。
+ */
+@Component
+public class TransactionMetrics implements RetryListener {
+    private final MeterRegistry registry;
+    private final Map<Method, MethodMeters> meters = new ConcurrentHashMap<>();
+
+    public TransactionMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void onAttempt(Method method, int numAttempt, long elapsedNanos, TransientErrorType errorType) {
+        MethodMeters methodMeters = metersFor(method);
+        methodMeters.attempts.increment();
+        Timer timer = errorType == null ? methodMeters.successfulAttemptLatency : methodMeters.failedAttemptLatency.get(errorType);
+        timer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void onBackoff(Method method, TransientErrorType errorType, long backoffMillis) {
+        MethodMeters methodMeters = metersFor(method);
+        methodMeters.retries.get(errorType).increment();
+        methodMeters.backoff.record(backoffMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void onComplete(Method method, int numAttempts, long elapsedNanos, Throwable failure) {
+        MethodMeters methodMeters = metersFor(method);
+        methodMeters.attemptsPerCall.record(numAttempts);
+        (failure == null ? methodMeters.successLatency : methodMeters.failureLatency)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private MethodMeters metersFor(Method method) {
+        return meters.computeIfAbsent(method, m -> new MethodMeters(registry,
+                m.getDeclaringClass().getSimpleName() + "." + m.getName()));
+    }
+
+    private static final class MethodMeters {
+        final Counter attempts;
+        final Map<TransientErrorType, Counter> retries = new EnumMap<>(TransientErrorType.class);
+        final DistributionSummary attemptsPerCall;
+        final Timer successLatency;
+        final Timer failureLatency;
+        final Timer successfulAttemptLatency;
+        final Map<TransientErrorType, Timer> failedAttemptLatency = new EnumMap<>(TransientErrorType.class);
+        final Timer backoff;
+
+        MethodMeters(MeterRegistry registry, String method) {
+            attempts = Counter.builder("cockroach.tx.attempts")
+                    .description("Transaction attempts, including retries")
+                    .tag("method", method)
+                    .register(registry);
+            attemptsPerCall = DistributionSummary.builder("cockroach.tx.attempts.per.call")
+                    .description("Number of attempts needed per call")
+                    .tag("method", method)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            successLatency = latencyTimer(registry, method, "success");
+            failureLatency = latencyTimer(registry, method, "failure");
+            successfulAttemptLatency = attemptTimer(registry, method, "success");
+            for (TransientErrorType errorType : TransientErrorType.values()) {
+                retries.put(errorType, Counter.builder("cockroach.tx.retries")
+                        .description("Transaction retries by reason")
+                        .tag("method", method)
+                        .tag("reason", errorType.name())
+                        .register(registry));
+                failedAttemptLatency.put(errorType, attemptTimer(registry, method, errorType.name()));
+            }
+            backoff = Timer.builder("cockroach.tx.backoff")
+                    .description("Time spent in retry backoff")
+                    .tag("method", method)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+
+        private static Timer latencyTimer(MeterRegistry registry, String method, String outcome) {
+            return Timer.builder("cockroach.tx.latency")
+                    .description("End-to-end latency of a transactional call, including retries and backoff")
+                    .tag("method", method)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+
+        private static Timer attemptTimer(MeterRegistry registry, String method, String outcome) {
+            return Timer.builder("cockroach.tx.attempt.latency")
+                    .description("Latency of a single transaction attempt")
+                    .tag("method", method)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+    }
+}
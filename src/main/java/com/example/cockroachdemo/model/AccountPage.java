@@ -0,0 +1,31 @@
+package com.example.cockroachdemo.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 键集分页（keyset / seek pagination）的一页结果：
+ * - accounts: 本页账户，按 id 升序
+ * - nextAfterId: 续页令牌，即本页最后一个账户的 id；传给下一次查询的 afterId 即可获取下一页，没有更多数据时为 null
+ */
+public class AccountPage {
+    private final List<Account> accounts;
+    private final Integer nextAfterId;
+
+    public AccountPage(List<Account> accounts, Integer nextAfterId) {
+        this.accounts = Collections.unmodifiableList(accounts);
+        this.nextAfterId = nextAfterId;
+    }
+
+    public List<Account> getAccounts() {
+        return accounts;
+    }
+
+    public Integer getNextAfterId() {
+        return nextAfterId;
+    }
+
+    public boolean hasNext() {
+        return nextAfterId != null;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.cockroachdemo.model;
+
+import java.util.function.Consumer;
+
+/**
+ * 分块提交批量导入的选项：
+ * - rowsPerChunk: 每个块的最大行数，达到后 flush 并提交
+ * - bytesPerChunk: 每个块的最大估算字节数，达到后 flush 并提交（按每行绑定参数的字节数估算）
+ * - resumeFromRow: 断点续传时已提交的行数（来自上一次的 LoadCheckpoint#getRowsCommitted），这些行会被跳过
+ * - progressListener: 每个块提交成功后回调，参数为最新的 LoadCheckpoint
+ */
+public class ChunkedLoadOptions {
+    /** 每行估算字节数：两个 int4 绑定参数，各自包含 4 字节长度前缀和 4 字节值 */
+    public static final int ESTIMATED_BYTES_PER_ROW = 2 * (Integer.BYTES + Integer.BYTES);
+
+    private int rowsPerChunk = 10000;
+    private long bytesPerChunk = 4L * 1024 * 1024;
+    private long resumeFromRow = 0;
+    private Consumer<LoadCheckpoint> progressListener = checkpoint -> {
+    };
+
+    public int getRowsPerChunk() {
+        return rowsPerChunk;
+    }
+
+    public void setRowsPerChunk(int rowsPerChunk) {
+        this.rowsPerChunk = rowsPerChunk;
+    }
+
+    public long getBytesPerChunk() {
+        return bytesPerChunk;
+    }
+
+    public void setBytesPerChunk(long bytesPerChunk) {
+        this.bytesPerChunk = bytesPerChunk;
+    }
+
+    public long getResumeFromRow() {
+        return resumeFromRow;
+    }
+
+    public void setResumeFromRow(long resumeFromRow) {
+        this.resumeFromRow = resumeFromRow;
+    }
+
+    public Consumer<LoadCheckpoint> getProgressListener() {
+        return progressListener;
+    }
+
+    public void setProgressListener(Consumer<LoadCheckpoint> progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * 结合行数与字节数两个上限，计算每个块实际允许的最大行数（至少为 1）。
+     */
+    public int effectiveRowsPerChunk() {
+        long rowsByBytes = bytesPerChunk / ESTIMATED_BYTES_PER_ROW;
+        return (int) Math.max(1, Math.min(rowsPerChunk, rowsByBytes));
+    }
+}
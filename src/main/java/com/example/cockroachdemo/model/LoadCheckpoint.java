@@ -0,0 +1,31 @@
+package com.example.cockroachdemo.model;
+
+/**
+ * 分块提交批量导入的进度/断点信息（每个块提交成功后产生一次）：
+ * - chunksCommitted: 已提交的块数量（含断点续传之前已提交的部分不计入，只统计本次调用）
+ * - rowsCommitted: 从数据源开头算起已提交的总行数，可作为 ChunkedLoadOptions#setResumeFromRow 的断点
+ * - lastCommittedId: 最近一次提交的块中最后一行的账户 id
+ */
+public class LoadCheckpoint {
+    private final int chunksCommitted;
+    private final long rowsCommitted;
+    private final int lastCommittedId;
+
+    public LoadCheckpoint(int chunksCommitted, long rowsCommitted, int lastCommittedId) {
+        this.chunksCommitted = chunksCommitted;
+        this.rowsCommitted = rowsCommitted;
+        this.lastCommittedId = lastCommittedId;
+    }
+
+    public int getChunksCommitted() {
+        return chunksCommitted;
+    }
+
+    public long getRowsCommitted() {
+        return rowsCommitted;
+    }
+
+    public int getLastCommittedId() {
+        return lastCommittedId;
+    }
+}
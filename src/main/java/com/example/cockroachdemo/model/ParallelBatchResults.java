@@ -0,0 +1,21 @@
+package com.example.cockroachdemo.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 并行批量插入的汇总结果：批次数量和影响行数为所有分区之和，另外保留每个分区的明细和耗时。
+ */
+public class ParallelBatchResults extends BatchResults {
+    private final List<PartitionResult> partitions;
+
+    public ParallelBatchResults(List<PartitionResult> partitions) {
+        super(partitions.stream().mapToInt(PartitionResult::getNumberOfBatches).sum(),
+                partitions.stream().mapToInt(PartitionResult::getTotalRowsAffected).sum());
+        this.partitions = Collections.unmodifiableList(partitions);
+    }
+
+    public List<PartitionResult> getPartitions() {
+        return partitions;
+    }
+}
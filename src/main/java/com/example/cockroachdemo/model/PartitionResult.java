@@ -0,0 +1,37 @@
+package com.example.cockroachdemo.model;
+
+/**
+ * 并行批量插入中单个分区的执行结果：
+ * - partition: 分区序号
+ * - numberOfBatches / totalRowsAffected: 该分区的批次数量与影响行数
+ * - elapsedMillis: 该分区从开始到提交（含重试）的耗时
+ */
+public class PartitionResult {
+    private final int partition;
+    private final int numberOfBatches;
+    private final int totalRowsAffected;
+    private final long elapsedMillis;
+
+    public PartitionResult(int partition, BatchResults results, long elapsedMillis) {
+        this.partition = partition;
+        this.numberOfBatches = results.getNumberOfBatches();
+        this.totalRowsAffected = results.getTotalRowsAffected();
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public int getPartition() {
+        return partition;
+    }
+
+    public int getNumberOfBatches() {
+        return numberOfBatches;
+    }
+
+    public int getTotalRowsAffected() {
+        return totalRowsAffected;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.cockroachdemo.model;
+
+/**
+ * 一笔转账请求：从 fromId 账户向 toId 账户转入 amount。
+ */
+public class Transfer {
+    private final int fromId;
+    private final int toId;
+    private final int amount;
+
+    public Transfer(int fromId, int toId, int amount) {
+        this.fromId = fromId;
+        this.toId = toId;
+        this.amount = amount;
+    }
+
+    public int getFromId() {
+        return fromId;
+    }
+
+    public int getToId() {
+        return toId;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.cockroachdemo.model;
+
+/**
+ * 单笔转账的执行结果：
+ * - status: 执行状态
+ * - fromBalance / toBalance: 转账成功后两个账户的余额（按批内转账顺序计算），未成功或未读取余额（条带化转账）时为 null
+ */
+public class TransferOutcome {
+    public enum Status {
+        /** 已执行 */
+        APPLIED,
+        /** 转出账户余额不足，未执行 */
+        INSUFFICIENT_FUNDS,
+        /** 转出或转入账户不存在，未执行 */
+        UNKNOWN_ACCOUNT,
+        /** 请求无效（金额不为正数，或转出与转入为同一账户），未执行 */
+        INVALID
+    }
+
+    private final Transfer transfer;
+    private final Status status;
+    private final Integer fromBalance;
+    private final Integer toBalance;
+
+    public TransferOutcome(Transfer transfer, Status status, Integer fromBalance, Integer toBalance) {
+        this.transfer = transfer;
+        this.status = status;
+        this.fromBalance = fromBalance;
+        this.toBalance = toBalance;
+    }
+
+    public static TransferOutcome rejected(Transfer transfer, Status status) {
+        return new TransferOutcome(transfer, status, null, null);
+    }
+
+    public Transfer getTransfer() {
+        return transfer;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isApplied() {
+        return status == Status.APPLIED;
+    }
+
+    public Integer getFromBalance() {
+        return fromBalance;
+    }
+
+    public Integer getToBalance() {
+        return toBalance;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.cockroachdemo.retry;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.example.cockroachdemo.RetryableTransactionAspect;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+
+/**
+ * 异步重试执行器：与 RetryableTransactionAspect 使用相同的 RetryPolicy，
+ * 但退避期间不调用 Thread.sleep 占用线程，而是通过 CompletableFuture.delayedExecutor 调度下一次尝试。
+ *
+ * 每次尝试通过 RetryableTransactionAspect#runSingleAttempt 执行，期间调用的事务方法只尝试一次，
+ * 不会与同步切面自身的重试叠加。切面照常通知每次尝试，退避和最终结果（含所有重试的尝试次数和退避时间）
+ * 由这里通知 RetryListener，因此指标和并发限制把一次异步调用看作一次调用，与同步调用一致。
+ */
+@Component
+public class AsyncRetryExecutor {
+    protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Autowired
+    private RetryPolicy retryPolicy;
+    @Autowired(required = false)
+    private List<RetryListener> listeners = Collections.emptyList();
+
+    /**
+     * 使用默认策略在 executor 上执行 operation，瞬时错误时异步调度重试。
+     */
+    public <T> CompletableFuture<T> execute(Supplier<T> operation, Executor executor) {
+        return execute(operation, retryPolicy, executor);
+    }
+
+    /**
+     * 使用指定策略在 executor 上执行 operation，瞬时错误时异步调度重试。
+     */
+    public <T> CompletableFuture<T> execute(Supplier<T> operation, RetryPolicy policy, Executor executor) {
+        AsyncCall<T> call = new AsyncCall<>(operation, policy, executor);
+        runAttempt(call, executor, 1, 0L);
+        return call.result;
+    }
+
+    private <T> void runAttempt(AsyncCall<T> call, Executor attemptExecutor, int numAttempts, long previousBackoffMillis) {
+        Supplier<T> attempt = () -> RetryableTransactionAspect.runSingleAttempt(call.operation, method -> call.method = method);
+        CompletableFuture.supplyAsync(attempt, attemptExecutor).whenComplete((value, failure) -> {
+            if (failure == null) {
+                call.complete(listeners, numAttempts, null);
+                call.result.complete(value);
+                return;
+            }
+            Throwable ex = failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause()
+                    : failure;
+            TransientErrorType errorType = TransientErrorType.classify(ex);
+            if (!call.policy.isRetryable(errorType)) {
+                call.complete(listeners, numAttempts, ex);
+                call.result.completeExceptionally(ex);
+                return;
+            }
+            if (numAttempts >= call.policy.getMaxAttempts(errorType)) {
+                ConcurrencyFailureException giveUp = new ConcurrencyFailureException(
+                        "Too many transient errors (" + numAttempts + ") for async operation. Giving up!", ex);
+                call.complete(listeners, numAttempts, giveUp);
+                call.result.completeExceptionally(giveUp);
+                return;
+            }
+            long backoffMillis = call.policy.nextBackoffMillis(errorType, numAttempts, previousBackoffMillis);
+            if (call.method != null) {
+                for (RetryListener listener : listeners) {
+                    listener.onBackoff(call.method, errorType, backoffMillis);
+                }
+            }
+            if (logger.isWarnEnabled()) {
+                logger.warn("Transient data access exception [" + errorType + "] (" + numAttempts + " of max "
+                        + call.policy.getMaxAttempts(errorType) + ") detected in async operation (retry scheduled in "
+                        + backoffMillis + " ms): " + ex.getMessage());
+            }
+            // 不阻塞任何线程：由 delayedExecutor 在退避结束后把下一次尝试提交到 executor
+            Executor delayed = CompletableFuture.delayedExecutor(backoffMillis, TimeUnit.MILLISECONDS, call.executor);
+            runAttempt(call, delayed, numAttempts + 1, backoffMillis);
+        });
+    }
+
+    /**
+     * 一次异步调用（含所有重试）的状态。
+     */
+    private static final class AsyncCall<T> {
+        private final Supplier<T> operation;
+        private final RetryPolicy policy;
+        private final Executor executor;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final long start = System.nanoTime();
+        /** 最近一次尝试调用的事务方法；operation 没有调用事务方法时为 null，不通知 RetryListener */
+        private volatile Method method;
+
+        private AsyncCall(Supplier<T> operation, RetryPolicy policy, Executor executor) {
+            this.operation = operation;
+            this.policy = policy;
+            this.executor = executor;
+        }
+
+        private void complete(List<RetryListener> listeners, int numAttempts, Throwable failure) {
+            if (method == null) {
+                return;
+            }
+            long elapsedNanos = System.nanoTime() - start;
+            for (RetryListener listener : listeners) {
+                listener.onComplete(method, numAttempts, elapsedNanos, failure);
+            }
+        }
+    }
+}
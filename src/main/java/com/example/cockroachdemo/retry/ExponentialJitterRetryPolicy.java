@@ -0,0 +1,97 @@
+package com.example.cockroachdemo.retry;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 默认重试策略：带抖动的指数退避，并按错误类别区别处理：
+ * - SERIALIZATION_FAILURE / DEADLOCK / OTHER_TRANSIENT：最多 maxAttempts 次，按 jitter 计算退避
+ * - CONNECTION_FAILURE：最多 connectionMaxAttempts 次，退避不低于 connectionMinBackoffMillis，给节点恢复/故障转移留出时间
+ * - AMBIGUOUS_RESULT：仅当 retryAmbiguous=true 时重试（要求方法幂等）
+ * - NOT_TRANSIENT：不重试
+ */
+public class ExponentialJitterRetryPolicy implements RetryPolicy {
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final double multiplier;
+    private final Jitter jitter;
+    private final int connectionMaxAttempts;
+    private final long connectionMinBackoffMillis;
+    private final boolean retryAmbiguous;
+
+    public ExponentialJitterRetryPolicy(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis,
+            double multiplier, Jitter jitter, int connectionMaxAttempts, long connectionMinBackoffMillis,
+            boolean retryAmbiguous) {
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.multiplier = multiplier;
+        this.jitter = jitter;
+        this.connectionMaxAttempts = connectionMaxAttempts;
+        this.connectionMinBackoffMillis = connectionMinBackoffMillis;
+        this.retryAmbiguous = retryAmbiguous;
+    }
+
+    @Override
+    public boolean isRetryable(TransientErrorType errorType) {
+        switch (errorType) {
+            case NOT_TRANSIENT:
+                return false;
+            case AMBIGUOUS_RESULT:
+                return retryAmbiguous;
+            default:
+                return true;
+        }
+    }
+
+    @Override
+    public int getMaxAttempts(TransientErrorType errorType) {
+        return errorType == TransientErrorType.CONNECTION_FAILURE
+                ? Math.min(connectionMaxAttempts, maxAttempts)
+                : maxAttempts;
+    }
+
+    @Override
+    public long nextBackoffMillis(TransientErrorType errorType, int numAttempts, long previousBackoffMillis) {
+        long backoff;
+        switch (jitter) {
+            case FULL:
+                backoff = ThreadLocalRandom.current().nextLong(exponentialCap(numAttempts) + 1);
+                break;
+            case DECORRELATED:
+                long upper = Math.max(initialBackoffMillis, previousBackoffMillis * 3);
+                backoff = Math.min(maxBackoffMillis, ThreadLocalRandom.current().nextLong(initialBackoffMillis, upper + 1));
+                break;
+            default:
+                backoff = exponentialCap(numAttempts);
+        }
+        if (errorType == TransientErrorType.CONNECTION_FAILURE) {
+            backoff = Math.max(backoff, connectionMinBackoffMillis);
+        }
+        return backoff;
+    }
+
+    /**
+     * 不加抖动时第 numAttempts 次失败后的退避：initial * multiplier^(numAttempts - 1)，不超过 maxBackoffMillis。
+     */
+    private long exponentialCap(int numAttempts) {
+        double backoff = initialBackoffMillis * Math.pow(multiplier, numAttempts - 1);
+        return (long) Math.min(backoff, maxBackoffMillis);
+    }
+
+    @Override
+    public RetryPolicy withOverrides(TransactionRetry overrides) {
+        if (overrides == null) {
+            return this;
+        }
+        return new ExponentialJitterRetryPolicy(
+                overrides.maxAttempts() > 0 ? overrides.maxAttempts() : maxAttempts,
+                overrides.initialBackoffMillis() >= 0 ? overrides.initialBackoffMillis() : initialBackoffMillis,
+                overrides.maxBackoffMillis() >= 0 ? overrides.maxBackoffMillis() : maxBackoffMillis,
+                multiplier,
+                overrides.jitter().length > 0 ? overrides.jitter()[0] : jitter,
+                connectionMaxAttempts,
+                connectionMinBackoffMillis,
+                overrides.retryAmbiguous() || retryAmbiguous);
+    }
+}
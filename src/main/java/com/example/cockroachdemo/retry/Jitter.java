@@ -0,0 +1,13 @@
+package com.example.cockroachdemo.retry;
+
+/**
+ * 退避时间的抖动方式，用于避免并发重试者同时醒来再次冲突。
+ */
+public enum Jitter {
+    /** 不加抖动：严格按指数增长（原有行为） */
+    NONE,
+    /** 完全抖动：在 [0, 指数退避上限] 内均匀随机 */
+    FULL,
+    /** 去相关抖动：在 [初始退避, 上一次退避 * 3] 内均匀随机，并受最大退避限制 */
+    DECORRELATED
+}
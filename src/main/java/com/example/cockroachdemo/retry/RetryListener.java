@@ -0,0 +1,31 @@
+package com.example.cockroachdemo.retry;
+
+import java.lang.reflect.Method;
+
+/**
+ * RetryableTransactionAspect 的回调接口：所有注册为 Bean 的实现都会收到每个 @Transactional 方法调用的
+ * 尝试、退避和最终结果通知（例如用于并发限制或指标统计）。回调在调用线程上同步执行，实现应当足够轻量。
+ */
+public interface RetryListener {
+    /**
+     * 一次尝试结束。
+     *
+     * @param errorType 失败时的错误分类，成功时为 null
+     */
+    default void onAttempt(Method method, int numAttempt, long elapsedNanos, TransientErrorType errorType) {
+    }
+
+    /**
+     * 因瞬时错误即将退避等待。
+     */
+    default void onBackoff(Method method, TransientErrorType errorType, long backoffMillis) {
+    }
+
+    /**
+     * 方法调用（含所有重试）结束。
+     *
+     * @param failure 最终失败时抛出的异常，成功时为 null
+     */
+    default void onComplete(Method method, int numAttempts, long elapsedNanos, Throwable failure) {
+    }
+}
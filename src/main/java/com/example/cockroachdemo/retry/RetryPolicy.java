@@ -0,0 +1,31 @@
+package com.example.cockroachdemo.retry;
+
+/**
+ * 可插拔的重试策略：决定某类瞬时错误是否重试、最多尝试几次，以及每次重试前的等待时间。
+ * 默认实现为 ExponentialJitterRetryPolicy，可以通过注册自定义的 RetryPolicy Bean 替换。
+ */
+public interface RetryPolicy {
+    /**
+     * 该类错误是否允许重试。
+     */
+    boolean isRetryable(TransientErrorType errorType);
+
+    /**
+     * 该类错误的最大尝试次数（包括第一次执行）。
+     */
+    int getMaxAttempts(TransientErrorType errorType);
+
+    /**
+     * 计算第 numAttempts 次尝试失败后、下一次重试前的等待时间。
+     *
+     * @param previousBackoffMillis 上一次的等待时间，第一次重试时为 0
+     */
+    long nextBackoffMillis(TransientErrorType errorType, int numAttempts, long previousBackoffMillis);
+
+    /**
+     * 应用方法上 @TransactionRetry 注解中的覆盖值，返回新的策略；注解为空时返回自身。
+     */
+    default RetryPolicy withOverrides(TransactionRetry overrides) {
+        return this;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.cockroachdemo.retry;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 默认重试策略配置（cockroachdemo.retry.*），默认值与原先硬编码的策略一致：
+ * 最多 30 次尝试，起始退避 150ms，按 1.5 倍增长至最大 1500ms；另外默认启用完全抖动（FULL jitter）。
+ * 40003（ambiguous result）默认不重试：提交可能已经生效，重试非幂等的方法（如转账）会重复执行；
+ * 幂等的方法可以通过 @TransactionRetry(retryAmbiguous = true) 单独启用。
+ * 注册自定义的 RetryPolicy Bean 即可替换该策略。
+ */
+@Configuration
+public class RetryPolicyConfiguration {
+    @Value("${cockroachdemo.retry.max-attempts:30}")
+    private int maxAttempts;
+    @Value("${cockroachdemo.retry.initial-backoff-millis:150}")
+    private long initialBackoffMillis;
+    @Value("${cockroachdemo.retry.max-backoff-millis:1500}")
+    private long maxBackoffMillis;
+    @Value("${cockroachdemo.retry.multiplier:1.5}")
+    private double multiplier;
+    @Value("${cockroachdemo.retry.jitter:FULL}")
+    private Jitter jitter;
+    @Value("${cockroachdemo.retry.connection.max-attempts:5}")
+    private int connectionMaxAttempts;
+    @Value("${cockroachdemo.retry.connection.min-backoff-millis:500}")
+    private long connectionMinBackoffMillis;
+    @Value("${cockroachdemo.retry.retry-ambiguous:false}")
+    private boolean retryAmbiguous;
+
+    @Bean
+    @ConditionalOnMissingBean(RetryPolicy.class)
+    public RetryPolicy retryPolicy() {
+        return new ExponentialJitterRetryPolicy(maxAttempts, initialBackoffMillis, maxBackoffMillis, multiplier,
+                jitter, connectionMaxAttempts, connectionMinBackoffMillis, retryAmbiguous);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.cockroachdemo.retry;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 为单个 @Transactional 方法覆盖默认重试策略的限制。未设置（-1 / 空数组）的属性沿用全局配置。
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface TransactionRetry {
+    /** 最大尝试次数 */
+    int maxAttempts() default -1;
+
+    /** 初始退避时间（毫秒） */
+    long initialBackoffMillis() default -1;
+
+    /** 最大退避时间（毫秒） */
+    long maxBackoffMillis() default -1;
+
+    /** 抖动方式（最多一个元素） */
+    Jitter[] jitter() default {};
+
+    /**
+     * 是否重试 40003（ambiguous result）。只有幂等的方法才应启用：提交可能已经生效，重试会再执行一次。
+     * 为 false 时沿用全局配置（cockroachdemo.retry.retry-ambiguous，默认 false）。
+     */
+    boolean retryAmbiguous() default false;
+}
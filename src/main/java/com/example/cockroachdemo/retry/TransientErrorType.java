@@ -0,0 +1,75 @@
+package com.example.cockroachdemo.retry;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * 瞬时错误分类：根据异常链中的 SQLSTATE（以及 JDBC 连接异常类型）判断错误是否可以重试、属于哪一类。
+ * 只有能识别的 SQLSTATE 才被视为可重试；Spring/MyBatis 自身抛出的 TransientDataAccessException
+ * （例如 ExecutorType 冲突等编程错误）不带 SQLSTATE，归为 NOT_TRANSIENT，不会被重试掩盖。
+ * 不同类别可以在 RetryPolicy 中使用不同的重试次数和退避策略。
+ */
+public enum TransientErrorType {
+    /** 40001：事务序列化冲突（CockroachDB 的 restart transaction），最常见的争用错误 */
+    SERIALIZATION_FAILURE,
+    /** 40P01：死锁 */
+    DEADLOCK,
+    /** 40003：语句完成状态未知（ambiguous result），事务可能已经提交 */
+    AMBIGUOUS_RESULT,
+    /** 08xxx / 57P01-57P03：连接级错误（连接断开、节点重启或关闭等） */
+    CONNECTION_FAILURE,
+    /** 其他可重试的 SQLSTATE：40000（事务回滚）、55P03（锁等待超时） */
+    OTHER_TRANSIENT,
+    /** 不可重试的错误 */
+    NOT_TRANSIENT;
+
+    /**
+     * 对异常进行分类：使用异常链中第一个带有可识别 SQLSTATE 的 SQLException，
+     * 没有可识别的 SQLSTATE 时，JDBC 连接异常（SQLTransientConnectionException / SQLRecoverableException）归为 CONNECTION_FAILURE。
+     */
+    public static TransientErrorType classify(Throwable ex) {
+        Throwable root = ex instanceof UndeclaredThrowableException
+                ? ((UndeclaredThrowableException) ex).getUndeclaredThrowable()
+                : ex;
+        for (Throwable t = root; t != null; t = t.getCause()) {
+            if (t instanceof SQLException) {
+                TransientErrorType type = fromSqlState(((SQLException) t).getSQLState());
+                if (type != null) {
+                    return type;
+                }
+                if (t instanceof SQLTransientConnectionException || t instanceof SQLRecoverableException) {
+                    return CONNECTION_FAILURE;
+                }
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return NOT_TRANSIENT;
+    }
+
+    private static TransientErrorType fromSqlState(String sqlState) {
+        if (sqlState == null) {
+            return null;
+        }
+        switch (sqlState) {
+            case "40001":
+                return SERIALIZATION_FAILURE;
+            case "40P01":
+                return DEADLOCK;
+            case "40003":
+                return AMBIGUOUS_RESULT;
+            case "57P01":
+            case "57P02":
+            case "57P03":
+                return CONNECTION_FAILURE;
+            case "40000":
+            case "55P03":
+                return OTHER_TRANSIENT;
+            default:
+                return sqlState.startsWith("08") ? CONNECTION_FAILURE : null;
+        }
+    }
+}
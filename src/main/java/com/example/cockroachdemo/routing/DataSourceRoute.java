@@ -0,0 +1,13 @@
+package com.example.cockroachdemo.routing;
+
+/**
+ * RoutingDataSource 的目标连接池。
+ */
+public enum DataSourceRoute {
+    /** 点查询等只读事务 */
+    READ,
+    /** OLTP 写事务（默认） */
+    WRITE,
+    /** 批量插入、COPY 等长时间运行的批处理 */
+    BULK
+}
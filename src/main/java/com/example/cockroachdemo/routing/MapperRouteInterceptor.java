@@ -0,0 +1,51 @@
+package com.example.cockroachdemo.routing;
+
+import com.example.cockroachdemo.batchmapper.BatchAccountMapper;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * MyBatis 插件：执行 batchmapper 包中的语句时把当前线程路由到 BULK 连接池（未显式设置路由时）。
+ * 只影响事务中第一条语句获取的物理连接，之后整个事务沿用同一个连接。
+ * 仅当 cockroachdemo.pools.enabled=true 时启用。
+ */
+@Component
+@ConditionalOnProperty(name = "cockroachdemo.pools.enabled", havingValue = "true")
+@Intercepts({
+        @Signature(type = Executor.class, method = "update", args = { MappedStatement.class, Object.class }),
+        @Signature(type = Executor.class, method = "query",
+                args = { MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class }),
+        @Signature(type = Executor.class, method = "query",
+                args = { MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class,
+                        BoundSql.class }),
+        @Signature(type = Executor.class, method = "queryCursor",
+                args = { MappedStatement.class, Object.class, RowBounds.class })
+})
+public class MapperRouteInterceptor implements Interceptor {
+    private static final String BULK_NAMESPACE_PREFIX = BatchAccountMapper.class.getPackage().getName() + ".";
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement ms = (MappedStatement) invocation.getArgs()[0];
+        if (RoutingDataSource.getCurrentRoute() != null || !ms.getId().startsWith(BULK_NAMESPACE_PREFIX)) {
+            return invocation.proceed();
+        }
+        DataSourceRoute previous = RoutingDataSource.setCurrentRoute(DataSourceRoute.BULK);
+        try {
+            return invocation.proceed();
+        } finally {
+            RoutingDataSource.resetCurrentRoute(previous);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.cockroachdemo.routing;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 显式指定方法（或类中所有方法）在启用多连接池（cockroachdemo.pools.enabled）时使用的连接池，
+ * 优先于 mapper 包和事务只读标记的自动路由。
+ */
+@Target({ ElementType.METHOD, ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RouteTo {
+    DataSourceRoute value();
+}
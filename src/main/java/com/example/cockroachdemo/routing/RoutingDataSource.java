@@ -0,0 +1,49 @@
+package com.example.cockroachdemo.routing;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 按 DataSourceRoute 在多个连接池之间路由的 DataSource，路由在获取物理连接时决定：
+ * 1. 当前线程显式设置的路由（@RouteTo 或 batchmapper 语句，见 setCurrentRoute）
+ * 2. 当前事务是只读事务时使用 READ
+ * 3. 否则使用 WRITE
+ *
+ * 需要包装在 LazyConnectionDataSourceProxy 中使用，使物理连接延迟到第一条语句执行时才获取，
+ * 此时事务的只读标记和显式路由都已经确定。
+ */
+public class RoutingDataSource extends AbstractRoutingDataSource {
+    private static final ThreadLocal<DataSourceRoute> currentRoute = new ThreadLocal<>();
+
+    /**
+     * 为当前线程设置显式路由，返回之前的路由，调用方应在结束后通过 resetCurrentRoute 恢复。
+     */
+    public static DataSourceRoute setCurrentRoute(DataSourceRoute route) {
+        DataSourceRoute previous = currentRoute.get();
+        currentRoute.set(route);
+        return previous;
+    }
+
+    public static void resetCurrentRoute(DataSourceRoute previous) {
+        if (previous == null) {
+            currentRoute.remove();
+        } else {
+            currentRoute.set(previous);
+        }
+    }
+
+    public static DataSourceRoute getCurrentRoute() {
+        return currentRoute.get();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        DataSourceRoute route = currentRoute.get();
+        if (route != null) {
+            return route;
+        }
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                ? DataSourceRoute.READ
+                : DataSourceRoute.WRITE;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.cockroachdemo.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.example.cockroachdemo.batchmapper.BatchAccountMapper;
+import com.example.cockroachdemo.metrics.BatchMetrics;
+import com.example.cockroachdemo.model.Account;
+
+import org.apache.ibatis.executor.BatchResult;
+
+/**
+ * 账户批量写入器：
+ * - rowsPerStatement <= 1 时逐行调用 BatchAccountMapper.insertAccount（原有行为）
+ * - rowsPerStatement > 1 时先在内存中攒够 rowsPerStatement 行，再通过 insertAccounts 生成一条多行 upsert 语句
+ * - insertOnly=true 时使用纯插入语句（insertNewAccount / insertNewAccounts），用于 id 保证不重复的写入
+ * 无论哪种模式，语句都只是进入 BATCH 执行器的队列，直到 flush() 才真正发送到数据库；每次 flush 的结果记录到 BatchMetrics。
+ *
+ * 该类有状态且非线程安全，应在单个事务/方法调用内创建并使用。
+ */
+class AccountBatchWriter {
+    /** PostgreSQL 协议单条语句最多 32767 个绑定参数，每行占用 2 个 */
+    static final int MAX_ROWS_PER_STATEMENT = Short.MAX_VALUE / 2;
+
+    private final BatchAccountMapper batchMapper;
+    private final BatchMetrics batchMetrics;
+    private final int rowsPerStatement;
+    private final boolean insertOnly;
+    private List<Account> pending;
+    private final Set<Integer> pendingIds;
+
+    AccountBatchWriter(BatchAccountMapper batchMapper, BatchMetrics batchMetrics, int rowsPerStatement) {
+        this(batchMapper, batchMetrics, rowsPerStatement, false);
+    }
+
+    AccountBatchWriter(BatchAccountMapper batchMapper, BatchMetrics batchMetrics, int rowsPerStatement, boolean insertOnly) {
+        this.batchMapper = batchMapper;
+        this.batchMetrics = batchMetrics;
+        this.rowsPerStatement = Math.min(Math.max(rowsPerStatement, 1), MAX_ROWS_PER_STATEMENT);
+        this.insertOnly = insertOnly;
+        this.pending = new ArrayList<>(this.rowsPerStatement);
+        this.pendingIds = new HashSet<>();
+    }
+
+    /**
+     * 添加一条账户数据到当前批次。
+     */
+    void add(Account account) {
+        if (rowsPerStatement == 1) {
+            if (insertOnly) {
+                batchMapper.insertNewAccount(account);
+            } else {
+                batchMapper.insertAccount(account);
+            }
+            return;
+        }
+        // 同一条多行 upsert 中不能出现重复 id：遇到重复时先把已攒的行写成一条语句，
+        // 重复行进入下一条语句，从而保持与逐行 upsert 相同的"后写覆盖"语义和影响行数
+        if (!pendingIds.add(account.getId())) {
+            writePending();
+            pendingIds.add(account.getId());
+        }
+        pending.add(account);
+        if (pending.size() >= rowsPerStatement) {
+            writePending();
+        }
+    }
+
+    /**
+     * 将未满的多行语句加入批次，然后 flush 整个批次并返回执行结果。
+     */
+    List<BatchResult> flush() {
+        writePending();
+        List<BatchResult> results = batchMapper.flush();
+        batchMetrics.recordFlush(results);
+        return results;
+    }
+
+    private void writePending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        // BATCH 执行器会在 BatchResult 中保留参数对象的引用，因此这里换一个新列表而不是 clear()
+        if (insertOnly) {
+            batchMapper.insertNewAccounts(pending);
+        } else {
+            batchMapper.insertAccounts(pending);
+        }
+        pending = new ArrayList<>(rowsPerStatement);
+        pendingIds.clear();
+    }
+}
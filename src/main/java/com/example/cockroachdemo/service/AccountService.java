@@ -1,9 +1,20 @@
 package com.example.cockroachdemo.service;
 
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import com.example.cockroachdemo.model.Account;
+import com.example.cockroachdemo.model.AccountPage;
 import com.example.cockroachdemo.model.BatchResults;
+import com.example.cockroachdemo.model.ChunkedLoadOptions;
+import com.example.cockroachdemo.model.ParallelBatchResults;
+import com.example.cockroachdemo.model.Transfer;
+import com.example.cockroachdemo.model.TransferOutcome;
 
 /**
  * 服务接口：定义了账户相关的核心业务方法。实现类负责将这些方法映射到 MyBatis Mapper（数据库层）。
@@ -16,14 +27,54 @@ public interface AccountService {
 
     /**
      * 查询单个账户（返回 Optional）。
+     * 启用 cockroachdemo.cache.enabled 时先查询进程内缓存（AccountCache），写操作会使相关缓存项失效。
+     * 启用 follower reads（FollowerReadAspect）时读取 AS OF SYSTEM TIME 的快照，且不经过缓存。
      * 
      * @param id 账户 id
      * @return Optional<Account>
      */
     Optional<Account> getAccount(int id);
 
+    /**
+     * 批量查询多个账户：在一个只读事务中以 `where id = ANY(?)` 查询，id 数量很多时按固定大小分块，
+     * 每块一次网络往返。启用账户缓存时，命中缓存的 id 不再查询数据库。
+     *
+     * @param ids 账户 id（可以重复）
+     * @return id 到账户的映射，不存在的 id 不包含在结果中
+     */
+    Map<Integer, Account> getAccounts(int... ids);
+
+    /**
+     * 批量查询多个账户。
+     *
+     * @see #getAccounts(int...)
+     */
+    Map<Integer, Account> getAccounts(Collection<Integer> ids);
+
+    /**
+     * 按 id 顺序的键集分页查询（where id > afterId order by id limit pageSize）。
+     * 启用 follower reads 时每一页各自读取 AS OF SYSTEM TIME 的快照。
+     *
+     * @param afterId  上一页返回的 AccountPage#getNextAfterId，查询第一页时为 null
+     * @param pageSize 每页的账户数量
+     * @return 本页账户及下一页的续页令牌
+     */
+    AccountPage findAccountsPage(Integer afterId, int pageSize);
+
+    /**
+     * 在只读事务中按 id 顺序流式遍历所有账户：结果按 JDBC fetch size 分批拉取，
+     * 内存占用与表大小无关，第一行到达后即可开始处理。
+     * 注意：若事务因瞬时错误被重试，consumer 会从第一行重新收到数据。
+     * 启用 follower reads 时读取 AS OF SYSTEM TIME 的快照。
+     *
+     * @param consumer 逐行处理账户的回调（账户对象仅在回调期间有效，不应被保留）
+     * @return 遍历的账户数量
+     */
+    long scanAllAccounts(Consumer<Account> consumer);
+
     /**
      * 批量插入随机账户数据（使用默认的批量逻辑/分批大小）。
+     * id 由 IdAllocator 分配、保证不重复，因此使用纯插入语句，不会覆盖已有账户。
      * 
      * @param numberToInsert 要插入的数量
      * @return BatchResults 描述批次数量和受影响的总行数
@@ -39,6 +90,54 @@ public interface AccountService {
      */
     BatchResults bulkInsertRandomAccountData(int numberToInsert, int batchSize);
 
+    /**
+     * 并行批量插入随机账户数据：每个分区的 id 由 IdAllocator 分配（互不重复，纯插入），
+     * 每个分区在工作线程池上以独立的事务和 BATCH 会话执行，失败时只重试该分区。
+     * 注意：各分区分别提交，某个分区最终失败时其他分区已写入的数据不会回滚。
+     *
+     * @param numberToInsert 要插入的总数
+     * @param batchSize      每个批次的大小
+     * @param partitions     分区（并发事务）数量
+     * @return ParallelBatchResults：汇总所有分区的批次数量和行数，并包含每个分区的耗时
+     */
+    ParallelBatchResults bulkInsertRandomAccountDataInParallel(int numberToInsert, int batchSize, int partitions);
+
+    /**
+     * 分块提交的流式批量导入：每攒够一个块（由行数或估算字节数上限决定）就 flush 并在独立事务中提交。
+     * - 客户端只保留当前块，内存占用与导入总行数无关
+     * - 瞬时错误只重试失败的块，已提交的块不会重放
+     * - 每个块提交后通过 progressListener 报告 LoadCheckpoint，可用 resumeFromRow 从断点继续
+     *
+     * @param accounts 待导入的账户（断点续传时需要提供与上次相同顺序的数据源）
+     * @param options  分块、断点与进度回调选项
+     * @return BatchResults：批次数量为本次提交的块数量，总行数为本次影响的行数
+     */
+    BatchResults bulkLoadInChunks(Iterator<Account> accounts, ChunkedLoadOptions options);
+
+    /**
+     * 以分块提交方式批量插入随机账户数据，断点续传时只补齐剩余的行数。
+     *
+     * @see #bulkLoadInChunks(Iterator, ChunkedLoadOptions)
+     */
+    BatchResults bulkInsertRandomAccountDataInChunks(int numberToInsert, ChunkedLoadOptions options);
+
+    /**
+     * 通过 COPY 协议流式导入账户（纯插入语义，id 已存在时失败）。
+     * 数据只会被消费一次，因此该方法不在可重试事务中执行：调用方在事务外调用时以自动提交方式导入，
+     * 在事务内调用时加入该事务。
+     *
+     * @param accounts 待导入的账户
+     * @return BatchResults：批次数量为发送的缓冲区数量，总行数为导入的行数
+     */
+    BatchResults bulkLoadAccounts(Iterator<Account> accounts);
+
+    /**
+     * 通过 COPY 协议流式导入账户，导入结束后关闭该 Stream。
+     *
+     * @see #bulkLoadAccounts(Iterator)
+     */
+    BatchResults bulkLoadAccounts(Stream<Account> accounts);
+
     /**
      * 新增多个账户为一个批次并返回执行结果（用于演示单次批次）。
      */
@@ -46,13 +145,69 @@ public interface AccountService {
 
     /**
      * 转账操作（从 fromAccount 减少 amount，并向 toAccount 增加 amount）。
+     * 涉及条带化账户时改用 transferFundsStriped 的逻辑，此时账户必须存在、转出账户的总余额必须足够，
+     * 否则抛出 DataIntegrityViolationException。
      * 
      * @return 受影响的行数
      */
     int transferFunds(int fromAccount, int toAccount, int amount);
 
     /**
-     * 统计账户数量
+     * 单次往返的转账：扣款、入账和余额检查在同一条语句中完成，并直接返回两个账户的新余额。
+     * 与 transferFunds 不同，不会创建不存在的账户，也不依赖 CHECK 约束失败来发现余额不足。
+     * 涉及条带化账户时改用 transferFundsStriped 的逻辑，之后再读取一次两个账户的总余额。
+     *
+     * @return 转账结果；被拒绝时说明原因（INVALID / UNKNOWN_ACCOUNT / INSUFFICIENT_FUNDS）
+     */
+    TransferOutcome transferFundsChecked(int fromAccount, int toAccount, int amount);
+
+    /**
+     * 更新单个账户的余额。条带化的账户会取消条带化（删除所有条带），之后账户的余额就是写入的值。
+     */
+    void updateAccount(Account account);
+
+    /**
+     * 批量转账：在一个事务中按顺序处理多笔转账。
+     * - 先锁定涉及的所有账户并读取总余额（条带只读取不加锁），在客户端逐笔校验（账户存在、余额充足），被拒绝的转账不影响其他转账
+     * - 按账户汇总净变化量后，用一条多行语句写回；条带化账户的净变化量与 transferFundsStriped 一样只写入一个条带，
+     * 随机条带余额不足的净扣款才锁定并重新分配全部条带
+     *
+     * @return 与 transfers 一一对应的执行结果
+     */
+    List<TransferOutcome> transferFundsBatch(List<Transfer> transfers);
+
+    /**
+     * 把热点账户的余额分散到 stripes 个条带行上（account_stripes），以减少并发转账在同一行上的写冲突：
+     * 账户当前的总余额被平均分到各条带，accounts 中的基础余额置为 0。对已条带化的账户再次调用时按新的条带数重新分配。
+     * 条带数量记录在 accounts.stripes 列中，与条带在同一事务中提交，所有实例都能看到。
+     * 之后 getAccount 等查询返回基础余额与所有条带之和，所有转账方法都按总余额处理条带化账户。
+     * 加锁顺序统一为先 accounts 中的行，后 account_stripes 中的条带。
+     *
+     * @param id      账户 id，必须已存在
+     * @param stripes 条带数量，必须为正数
+     */
+    void stripeAccount(int id, int stripes);
+
+    /**
+     * 支持条带化账户的转账：
+     * - 入账写入转入账户的一个随机条带（未条带化时写入基础余额）
+     * - 扣款先尝试转出账户的一个随机条带，该条带余额不足时锁定所有条带，总余额足够则重新平均分配扣款后的余额，否则拒绝
+     * 因此热点账户上的并发转账大多只在不同的条带行上冲突，透支检查仍然针对账户的总余额。
+     *
+     * @return 转账结果；成功时不返回余额（读取所有条带会抵消条带化的收益），被拒绝时说明原因
+     */
+    TransferOutcome transferFundsStriped(int fromAccount, int toAccount, int amount);
+
+    /**
+     * 重新平衡条带化账户：当有条带的余额低于平均值的一半，或基础余额不为 0 时，把总余额平均分配到各条带。
+     * 未条带化的账户不做任何操作。
+     *
+     * @return 是否重写了条带
+     */
+    boolean rebalanceStripes(int id);
+
+    /**
+     * 统计账户数量。启用 follower reads 时读取 AS OF SYSTEM TIME 的快照。
      */
     long findCountOfAccounts();
 
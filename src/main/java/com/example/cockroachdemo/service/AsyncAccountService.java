@@ -0,0 +1,33 @@
+package com.example.cockroachdemo.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import com.example.cockroachdemo.model.Account;
+import com.example.cockroachdemo.model.BatchResults;
+import com.example.cockroachdemo.model.Transfer;
+import com.example.cockroachdemo.model.TransferOutcome;
+
+/**
+ * AccountService 的异步版本：每个方法立即返回 CompletableFuture，操作在 asyncAccountExecutor（默认虚拟线程）上执行。
+ * 瞬时错误的重试由 AsyncRetryExecutor 异步调度，退避期间不占用线程；语义与 AccountService 中的同名方法相同。
+ */
+public interface AsyncAccountService {
+    CompletableFuture<Optional<Account>> getAccount(int id);
+
+    CompletableFuture<Map<Integer, Account>> getAccounts(int... ids);
+
+    CompletableFuture<BatchResults> addAccounts(Account... accounts);
+
+    CompletableFuture<Integer> transferFunds(int fromAccount, int toAccount, int amount);
+
+    CompletableFuture<TransferOutcome> transferFundsChecked(int fromAccount, int toAccount, int amount);
+
+    CompletableFuture<List<TransferOutcome>> transferFundsBatch(List<Transfer> transfers);
+
+    CompletableFuture<Void> updateAccount(Account account);
+
+    CompletableFuture<Long> findCountOfAccounts();
+}
@@ -0,0 +1,81 @@
+package com.example.cockroachdemo.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+import com.example.cockroachdemo.model.Account;
+import com.example.cockroachdemo.model.BatchResults;
+import com.example.cockroachdemo.model.Transfer;
+import com.example.cockroachdemo.model.TransferOutcome;
+import com.example.cockroachdemo.retry.AsyncRetryExecutor;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+/**
+ * AsyncAccountService 的实现：委托给（经过事务和重试切面代理的）AccountService。
+ * - AsyncRetryExecutor 通过 RetryableTransactionAspect.runSingleAttempt 让每次尝试只执行一次事务，切面不会在线程中 sleep 重试
+ * - 失败后由 AsyncRetryExecutor 按 RetryPolicy 在退避结束后把下一次尝试重新提交到执行器
+ */
+@Service
+public class AsyncMyBatisAccountService implements AsyncAccountService {
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private AsyncRetryExecutor asyncRetryExecutor;
+    @Autowired
+    @Qualifier("asyncAccountExecutor")
+    private ExecutorService executor;
+
+    @Override
+    public CompletableFuture<Optional<Account>> getAccount(int id) {
+        return submit(() -> accountService.getAccount(id));
+    }
+
+    @Override
+    public CompletableFuture<Map<Integer, Account>> getAccounts(int... ids) {
+        return submit(() -> accountService.getAccounts(ids));
+    }
+
+    @Override
+    public CompletableFuture<BatchResults> addAccounts(Account... accounts) {
+        return submit(() -> accountService.addAccounts(accounts));
+    }
+
+    @Override
+    public CompletableFuture<Integer> transferFunds(int fromAccount, int toAccount, int amount) {
+        return submit(() -> accountService.transferFunds(fromAccount, toAccount, amount));
+    }
+
+    @Override
+    public CompletableFuture<TransferOutcome> transferFundsChecked(int fromAccount, int toAccount, int amount) {
+        return submit(() -> accountService.transferFundsChecked(fromAccount, toAccount, amount));
+    }
+
+    @Override
+    public CompletableFuture<List<TransferOutcome>> transferFundsBatch(List<Transfer> transfers) {
+        return submit(() -> accountService.transferFundsBatch(transfers));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateAccount(Account account) {
+        return submit(() -> {
+            accountService.updateAccount(account);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Long> findCountOfAccounts() {
+        return submit(accountService::findCountOfAccounts);
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> operation) {
+        return asyncRetryExecutor.execute(operation, executor);
+    }
+}
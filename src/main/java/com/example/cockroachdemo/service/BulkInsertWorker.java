@@ -0,0 +1,87 @@
+package com.example.cockroachdemo.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.example.cockroachdemo.batchmapper.BatchAccountMapper;
+import com.example.cockroachdemo.cache.AccountCache;
+import com.example.cockroachdemo.idgen.IdAllocator;
+import com.example.cockroachdemo.metrics.BatchMetrics;
+import com.example.cockroachdemo.model.Account;
+import com.example.cockroachdemo.model.BatchResults;
+
+import org.apache.ibatis.executor.BatchResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Component
+/**
+ * 批量插入的工作单元：
+ * 每次调用都在自己的 REQUIRES_NEW 事务（以及绑定到该事务的 BATCH SqlSession）中执行，
+ * 并经过 RetryableTransactionAspect，因此可以从多个线程并发调用，失败时只重试当前这一部分工作。
+ */
+public class BulkInsertWorker {
+    @Autowired
+    private BatchAccountMapper batchMapper;
+    @Autowired
+    private BatchMetrics batchMetrics;
+    @Autowired
+    private AccountCache accountCache;
+    @Autowired
+    private IdAllocator idAllocator;
+    @Value("${cockroachdemo.batch.rows-per-statement:1}")
+    private int rowsPerStatement;
+
+    /**
+     * 将一个块中的账户写入并 flush，随事务一起提交。
+     * 重试时会重放同一个列表，因此只有失败的块会被重新写入。
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public BatchResults insertChunk(List<Account> accounts) {
+        accountCache.onWrite(accounts.stream().mapToInt(Account::getId).toArray());
+        AccountBatchWriter writer = new AccountBatchWriter(batchMapper, batchMetrics, rowsPerStatement);
+        for (Account account : accounts) {
+            writer.add(account);
+        }
+        return new BatchResults(1, sumUpdateCounts(writer.flush()));
+    }
+
+    /**
+     * 随机生成 numberToInsert 个账户（id 由 IdAllocator 分配）并按 batchSize 分批以纯插入语句写入。
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public BatchResults insertRandomAccounts(int numberToInsert, int batchSize) {
+        // 每个线程使用自己的 ThreadLocalRandom 和 id 块，避免多个分区争用同一个 Random 实例或计数器
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        AccountBatchWriter writer = new AccountBatchWriter(batchMapper, batchMetrics, rowsPerStatement, true);
+        List<List<BatchResult>> results = new ArrayList<>();
+        for (int i = 0; i < numberToInsert; i++) {
+            Account account = new Account();
+            account.setId(idAllocator.nextId());
+            account.setBalance(random.nextInt(1000000000));
+            writer.add(account);
+            if ((i + 1) % batchSize == 0) {
+                results.add(writer.flush());
+            }
+        }
+        if (numberToInsert % batchSize != 0) {
+            results.add(writer.flush());
+        }
+        int rowsAffected = results.stream()
+                .mapToInt(BulkInsertWorker::sumUpdateCounts)
+                .sum();
+        return new BatchResults(results.size(), rowsAffected);
+    }
+
+    private static int sumUpdateCounts(List<BatchResult> results) {
+        return results.stream()
+                .map(BatchResult::getUpdateCounts)
+                .flatMapToInt(Arrays::stream)
+                .sum();
+    }
+}
@@ -1,21 +1,59 @@
 package com.example.cockroachdemo.service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import javax.annotation.PostConstruct;
+
+import com.example.cockroachdemo.FollowerRead;
+import com.example.cockroachdemo.SingleStatement;
 import com.example.cockroachdemo.batchmapper.BatchAccountMapper;
+import com.example.cockroachdemo.batchmapper.CopyAccountLoader;
+import com.example.cockroachdemo.cache.AccountCache;
+import com.example.cockroachdemo.idgen.IdAllocator;
 import com.example.cockroachdemo.mapper.AccountMapper;
+import com.example.cockroachdemo.metrics.BatchMetrics;
 import com.example.cockroachdemo.model.Account;
+import com.example.cockroachdemo.model.AccountPage;
 import com.example.cockroachdemo.model.BatchResults;
+import com.example.cockroachdemo.model.ChunkedLoadOptions;
+import com.example.cockroachdemo.model.LoadCheckpoint;
+import com.example.cockroachdemo.model.ParallelBatchResults;
+import com.example.cockroachdemo.model.PartitionResult;
+import com.example.cockroachdemo.model.Transfer;
+import com.example.cockroachdemo.model.TransferOutcome;
+import com.example.cockroachdemo.retry.TransactionRetry;
 
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BatchResult;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
 
 @Service
 /**
@@ -23,13 +61,36 @@ import org.springframework.transaction.annotation.Transactional;
  * - 通过注入的 Mapper（mapper, batchMapper）与数据库交互
  * - 许多方法使用 REQUIRES_NEW 的事务传播，以模拟每个独立业务操作都有自己的事务边界（演示目的）
  * - 批量操作使用 BatchAccountMapper 并通过 flush() 触发 SQL 执行
+ * - cockroachdemo.batch.rows-per-statement > 1 时，批量操作将多个账户合并为一条多行 upsert 语句
  */
 public class MyBatisAccountService implements AccountService {
     @Autowired
     private AccountMapper mapper;
     @Autowired
     private BatchAccountMapper batchMapper;
-    private Random random = new Random();
+    @Autowired
+    private BatchMetrics batchMetrics;
+    @Autowired
+    private CopyAccountLoader copyLoader;
+    @Autowired
+    private AccountCache accountCache;
+    @Autowired
+    private BulkInsertWorker bulkInsertWorker;
+    @Autowired
+    @Qualifier("bulkInsertExecutor")
+    private ExecutorService bulkInsertExecutor;
+    @Autowired
+    private IdAllocator idAllocator;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    /** transferFunds 涉及条带化账户时使用：加入当前事务，autocommit 模式下没有外层事务时开启一个 */
+    private TransactionTemplate stripedTransferTemplate;
+    /** 批量查询时每个 `= ANY(?)` 查询包含的最大 id 数量 */
+    @Value("${cockroachdemo.multiget.chunk-size:1000}")
+    private int multiGetChunkSize;
+    /** 每条 upsert 语句包含的行数，1 表示逐行 upsert（默认） */
+    @Value("${cockroachdemo.batch.rows-per-statement:1}")
+    private int rowsPerStatement;
 
     @Override
     /**
@@ -39,6 +100,9 @@ public class MyBatisAccountService implements AccountService {
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void createAccountsTable() {
         mapper.createAccountsTable();
+        mapper.addStripesColumn();
+        mapper.createAccountStripesTable();
+        mapper.createAccountIdSequence();
     }
 
     @Override
@@ -49,15 +113,45 @@ public class MyBatisAccountService implements AccountService {
          * - insertAccount(account) 只是将 SQL 放入当前会话的批队列
          * - 调用 flush() 会真正发送并执行该批次 SQL，返回 BatchResult 列表
          */
+        accountCache.onWrite(Arrays.stream(accounts).mapToInt(Account::getId).toArray());
+        AccountBatchWriter writer = newBatchWriter();
         for (Account account : accounts) {
-            batchMapper.insertAccount(account);
+            writer.add(account);
         }
-        List<BatchResult> results = batchMapper.flush();
+        List<BatchResult> results = writer.flush();
 
         // 本方法总是使用单个批次提交（演示简化），因此 numberOfBatches 固定为 1
         return new BatchResults(1, calculateRowsAffectedBySingleBatch(results));
     }
 
+    @PostConstruct
+    void init() {
+        // 分块循环以 chunk-size 为步长，非正数会使 getAccounts 和 transferFundsBatch 死循环
+        if (multiGetChunkSize <= 0) {
+            throw new IllegalArgumentException(
+                    "cockroachdemo.multiget.chunk-size must be positive but was " + multiGetChunkSize);
+        }
+        stripedTransferTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    private AccountBatchWriter newBatchWriter() {
+        return new AccountBatchWriter(batchMapper, batchMetrics, rowsPerStatement);
+    }
+
+    /**
+     * 随机账户的 id 由 IdAllocator 分配、保证不重复，因此使用纯插入语句。
+     */
+    private AccountBatchWriter newInsertOnlyBatchWriter() {
+        return new AccountBatchWriter(batchMapper, batchMetrics, rowsPerStatement, true);
+    }
+
+    private Account newRandomAccount() {
+        Account account = new Account();
+        account.setId(idAllocator.nextId());
+        account.setBalance(ThreadLocalRandom.current().nextInt(1000000000));
+        return account;
+    }
+
     private int calculateRowsAffectedBySingleBatch(List<BatchResult> results) {
         return results.stream()
                 .map(BatchResult::getUpdateCounts)
@@ -69,17 +163,15 @@ public class MyBatisAccountService implements AccountService {
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public BatchResults bulkInsertRandomAccountData(int numberToInsert) {
         List<List<BatchResult>> results = new ArrayList<>();
+        AccountBatchWriter writer = newInsertOnlyBatchWriter();
 
-        // 随机生成 account id 和 balance（示例目的）。注意：随机 id 可能重复导致 upsert 更新而不是插入。
+        // 随机生成 balance（示例目的），id 由 IdAllocator 分配；纯插入不会修改已有（可能已缓存）的账户
         for (int i = 0; i < numberToInsert; i++) {
-            Account account = new Account();
-            account.setId(random.nextInt(1000000000));
-            account.setBalance(random.nextInt(1000000000));
-            batchMapper.insertAccount(account);
+            writer.add(newRandomAccount());
         }
 
         // 将所有积累的批次一次 flush
-        results.add(batchMapper.flush());
+        results.add(writer.flush());
 
         return new BatchResults(results.size(), calculateRowsAffectedByMultipleBatches(results));
     }
@@ -88,24 +180,120 @@ public class MyBatisAccountService implements AccountService {
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public BatchResults bulkInsertRandomAccountData(int numberToInsert, int batchSize) {
         List<List<BatchResult>> results = new ArrayList<>();
+        AccountBatchWriter writer = newInsertOnlyBatchWriter();
 
         // 支持按 batchSize 分段提交批次：每个批次满后触发一次 flush
         for (int i = 0; i < numberToInsert; i++) {
-            Account account = new Account();
-            account.setId(random.nextInt(1000000000));
-            account.setBalance(random.nextInt(1000000000));
-            batchMapper.insertAccount(account);
+            writer.add(newRandomAccount());
             if ((i + 1) % batchSize == 0) {
                 // 到达 batchSize 大小后，flush 当前批次并记录结果
-                results.add(batchMapper.flush());
+                results.add(writer.flush());
             }
         }
         if (numberToInsert % batchSize != 0) {
-            results.add(batchMapper.flush());
+            results.add(writer.flush());
         }
         return new BatchResults(results.size(), calculateRowsAffectedByMultipleBatches(results));
     }
 
+    @Override
+    public ParallelBatchResults bulkInsertRandomAccountDataInParallel(int numberToInsert, int batchSize, int partitions) {
+        Assert.isTrue(partitions > 0, "partitions must be positive");
+        // 不使用 @Transactional：每个分区通过 BulkInsertWorker 在自己的线程、事务和 BATCH 会话中执行
+        // 每个分区的工作线程从 IdAllocator 租用自己的 id 块，分区之间不会产生重复 id
+        List<Future<PartitionResult>> futures = new ArrayList<>(partitions);
+        for (int p = 0; p < partitions; p++) {
+            int partition = p;
+            int count = numberToInsert / partitions + (p < numberToInsert % partitions ? 1 : 0);
+            futures.add(bulkInsertExecutor.submit(() -> {
+                long start = System.nanoTime();
+                BatchResults results = bulkInsertWorker.insertRandomAccounts(count, batchSize);
+                return new PartitionResult(partition, results,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }));
+        }
+
+        List<PartitionResult> results = new ArrayList<>(partitions);
+        try {
+            for (Future<PartitionResult> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Interrupted while waiting for bulk insert partitions", ex);
+        } catch (ExecutionException ex) {
+            // 任一分区最终失败时取消尚未完成的分区，并将原始异常抛给调用方
+            futures.forEach(future -> future.cancel(true));
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IllegalStateException("Bulk insert partition failed", ex.getCause());
+        }
+        return new ParallelBatchResults(results);
+    }
+
+    @Override
+    public BatchResults bulkLoadInChunks(Iterator<Account> accounts, ChunkedLoadOptions options) {
+        // 不使用 @Transactional：每个块通过 BulkInsertWorker 在独立事务中提交，瞬时错误只重试当前块
+        long rowsCommitted = 0;
+        // 跳过断点之前已经提交过的行
+        while (rowsCommitted < options.getResumeFromRow() && accounts.hasNext()) {
+            accounts.next();
+            rowsCommitted++;
+        }
+
+        int rowsPerChunk = options.effectiveRowsPerChunk();
+        // 块缓冲区大小固定并在块之间复用，客户端内存占用与导入总行数无关
+        List<Account> chunk = new ArrayList<>(rowsPerChunk);
+        int numberOfChunks = 0;
+        int rowsAffected = 0;
+        while (accounts.hasNext()) {
+            chunk.add(accounts.next());
+            if (chunk.size() == rowsPerChunk || !accounts.hasNext()) {
+                BatchResults results = bulkInsertWorker.insertChunk(chunk);
+                numberOfChunks++;
+                rowsAffected += results.getTotalRowsAffected();
+                rowsCommitted += chunk.size();
+                options.getProgressListener().accept(
+                        new LoadCheckpoint(numberOfChunks, rowsCommitted, chunk.get(chunk.size() - 1).getId()));
+                chunk.clear();
+            }
+        }
+        return new BatchResults(numberOfChunks, rowsAffected);
+    }
+
+    @Override
+    public BatchResults bulkInsertRandomAccountDataInChunks(int numberToInsert, ChunkedLoadOptions options) {
+        // 随机数据按需逐行生成，断点之前的行由 bulkLoadInChunks 跳过
+        return bulkLoadInChunks(new Iterator<Account>() {
+            private int generated = 0;
+
+            @Override
+            public boolean hasNext() {
+                return generated < numberToInsert;
+            }
+
+            @Override
+            public Account next() {
+                generated++;
+                return newRandomAccount();
+            }
+        }, options);
+    }
+
+    @Override
+    public BatchResults bulkLoadAccounts(Iterator<Account> accounts) {
+        // 不使用 @Transactional：迭代器只能消费一次，重试切面无法安全地重放
+        // COPY 是纯插入语义，不会修改已存在（可能已缓存）的账户，因此无需使缓存失效
+        return copyLoader.load(accounts);
+    }
+
+    @Override
+    public BatchResults bulkLoadAccounts(Stream<Account> accounts) {
+        return copyLoader.load(accounts);
+    }
+
     private int calculateRowsAffectedByMultipleBatches(List<List<BatchResult>> results) {
         return results.stream()
                 .mapToInt(this::calculateRowsAffectedBySingleBatch)
@@ -113,26 +301,363 @@ public class MyBatisAccountService implements AccountService {
     }
 
     @Override
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    @FollowerRead
+    @SingleStatement
     public Optional<Account> getAccount(int id) {
         return mapper.findAccountById(id);
     }
 
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public Map<Integer, Account> getAccounts(int... ids) {
+        return findAccountsByIds(ids);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public Map<Integer, Account> getAccounts(Collection<Integer> ids) {
+        return findAccountsByIds(ids.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private Map<Integer, Account> findAccountsByIds(int[] ids) {
+        Map<Integer, Account> accounts = new HashMap<>();
+        // 先从缓存中取出已缓存的账户，剩余的 id 去重后查询数据库
+        int[] misses = Arrays.stream(ids).distinct().filter(id -> {
+            if (!accountCache.isEnabled()) {
+                return true;
+            }
+            Account cached = accountCache.getIfPresent(id);
+            if (cached == null) {
+                return true;
+            }
+            accounts.put(id, cached);
+            return false;
+        }).toArray();
+
+        long loadToken = accountCache.beginLoad();
+        for (int from = 0; from < misses.length; from += multiGetChunkSize) {
+            int[] chunk = Arrays.copyOfRange(misses, from, Math.min(from + multiGetChunkSize, misses.length));
+            for (Account account : mapper.findAccountsByIds(chunk)) {
+                accounts.put(account.getId(), account);
+                if (accountCache.isEnabled()) {
+                    accountCache.completeLoad(account.getId(), Optional.of(account), loadToken);
+                }
+            }
+        }
+        return accounts;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    @FollowerRead
+    public AccountPage findAccountsPage(Integer afterId, int pageSize) {
+        Assert.isTrue(pageSize > 0, "pageSize must be positive");
+        // 多取一行用于判断是否还有下一页，避免额外的 count 查询
+        List<Account> accounts = mapper.findAccountsAfter(afterId, pageSize + 1);
+        if (accounts.size() <= pageSize) {
+            return new AccountPage(accounts, null);
+        }
+        List<Account> page = accounts.subList(0, pageSize);
+        return new AccountPage(page, page.get(pageSize - 1).getId());
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    @FollowerRead
+    public long scanAllAccounts(Consumer<Account> consumer) {
+        // 游标只能在事务内遍历，遍历结束后关闭以释放服务端的结果集
+        long count = 0;
+        try (Cursor<Account> cursor = mapper.scanAllAccounts()) {
+            for (Account account : cursor) {
+                consumer.accept(account);
+                count++;
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return count;
+    }
+
     @Override
     @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @SingleStatement
     public int transferFunds(int fromId, int toId, int amount) {
-        return mapper.transfer(fromId, toId, amount);
+        accountCache.onWrite(fromId, toId);
+        int updated = mapper.transfer(fromId, toId, amount);
+        if (updated > 0) {
+            return updated;
+        }
+        // 涉及条带化账户时 upsert 不写入任何行，改用条带化的转账逻辑（多条语句，需要在事务中执行）
+        return stripedTransferTemplate.execute(status -> {
+            TransferOutcome.Status result = transferStriped(fromId, toId, amount);
+            if (result != TransferOutcome.Status.APPLIED) {
+                throw new DataIntegrityViolationException("Transfer of " + amount + " from account " + fromId
+                        + " to account " + toId + " rejected: " + result);
+            }
+            return 2;
+        });
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public TransferOutcome transferFundsChecked(int fromId, int toId, int amount) {
+        Transfer transfer = new Transfer(fromId, toId, amount);
+        if (amount <= 0 || fromId == toId) {
+            return TransferOutcome.rejected(transfer, TransferOutcome.Status.INVALID);
+        }
+        accountCache.onWrite(fromId, toId);
+        List<Account> updated = mapper.transferReturningBalances(fromId, toId, amount);
+        if (updated.isEmpty()) {
+            // 没有更新任何行时才需要额外一次查询（总余额，包括条带）来区分拒绝原因
+            updated = mapper.findAccountsByIds(new int[] {fromId, toId});
+            if (updated.size() < 2) {
+                return TransferOutcome.rejected(transfer, TransferOutcome.Status.UNKNOWN_ACCOUNT);
+            }
+            Account from = updated.get(0).getId() == fromId ? updated.get(0) : updated.get(1);
+            if (from.getBalance() < amount) {
+                return TransferOutcome.rejected(transfer, TransferOutcome.Status.INSUFFICIENT_FUNDS);
+            }
+            // 两个账户都存在且总余额足够：至少有一个账户已条带化
+            TransferOutcome.Status status = transferStriped(fromId, toId, amount);
+            if (status != TransferOutcome.Status.APPLIED) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                return TransferOutcome.rejected(transfer, status);
+            }
+            updated = mapper.findAccountsByIds(new int[] {fromId, toId});
+        }
+        Integer fromBalance = null;
+        Integer toBalance = null;
+        for (Account account : updated) {
+            if (account.getId() == fromId) {
+                fromBalance = account.getBalance();
+            } else {
+                toBalance = account.getBalance();
+            }
+        }
+        return new TransferOutcome(transfer, TransferOutcome.Status.APPLIED, fromBalance, toBalance);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public List<TransferOutcome> transferFundsBatch(List<Transfer> transfers) {
+        Set<Integer> ids = new HashSet<>();
+        for (Transfer transfer : transfers) {
+            ids.add(transfer.getFromId());
+            ids.add(transfer.getToId());
+        }
+        int[] accountIds = ids.stream().mapToInt(Integer::intValue).toArray();
+        accountCache.onWrite(accountIds);
+
+        // 锁定并读取所有涉及的账户；条带化账户的条带只读取不加锁，写入时与单笔转账一样只修改一个条带
+        Map<Integer, Integer> balances = new HashMap<>();
+        Set<Integer> striped = new HashSet<>();
+        for (int from = 0; from < accountIds.length; from += multiGetChunkSize) {
+            int[] chunk = Arrays.copyOfRange(accountIds, from, Math.min(from + multiGetChunkSize, accountIds.length));
+            for (Account account : mapper.findAccountsByIdsForUpdate(chunk)) {
+                balances.put(account.getId(), account.getBalance());
+            }
+            for (Account stripe : mapper.findStripesByIds(chunk)) {
+                balances.merge(stripe.getId(), stripe.getBalance(), Math::addExact);
+                striped.add(stripe.getId());
+            }
+        }
+
+        // 按顺序在客户端逐笔校验并汇总每个账户的净变化量
+        List<TransferOutcome> outcomes = new ArrayList<>(transfers.size());
+        Map<Integer, Integer> deltas = new HashMap<>();
+        for (Transfer transfer : transfers) {
+            Integer fromBalance = balances.get(transfer.getFromId());
+            Integer toBalance = balances.get(transfer.getToId());
+            if (transfer.getAmount() <= 0 || transfer.getFromId() == transfer.getToId()) {
+                outcomes.add(TransferOutcome.rejected(transfer, TransferOutcome.Status.INVALID));
+            } else if (fromBalance == null || toBalance == null) {
+                outcomes.add(TransferOutcome.rejected(transfer, TransferOutcome.Status.UNKNOWN_ACCOUNT));
+            } else if (fromBalance < transfer.getAmount()) {
+                outcomes.add(TransferOutcome.rejected(transfer, TransferOutcome.Status.INSUFFICIENT_FUNDS));
+            } else {
+                int newFromBalance = fromBalance - transfer.getAmount();
+                int newToBalance = Math.addExact(toBalance, transfer.getAmount());
+                balances.put(transfer.getFromId(), newFromBalance);
+                balances.put(transfer.getToId(), newToBalance);
+                deltas.merge(transfer.getFromId(), -transfer.getAmount(), Integer::sum);
+                deltas.merge(transfer.getToId(), transfer.getAmount(), Integer::sum);
+                outcomes.add(new TransferOutcome(transfer, TransferOutcome.Status.APPLIED, newFromBalance, newToBalance));
+            }
+        }
+
+        deltas.values().removeIf(delta -> delta == 0);
+        // 条带化账户的净入账写入一个随机条带，净扣款先尝试基础余额和一个随机条带，不够时才锁定并重新分配全部条带；
+        // 条带之间的平衡交给 rebalanceStripes
+        for (int id : striped) {
+            Integer delta = deltas.remove(id);
+            if (delta == null) {
+                continue;
+            }
+            if (delta > 0) {
+                int updated = mapper.creditRandomStripe(id, delta);
+                Assert.state(updated == 1, "Expected a stripe of account " + id + " to be updated but was " + updated);
+            } else {
+                TransferOutcome.Status status = debitStriped(id, -delta);
+                Assert.state(status == TransferOutcome.Status.APPLIED,
+                        "Expected striped account " + id + " to be debited " + -delta + " but was " + status);
+            }
+        }
+        // 用一条语句写回其余账户所有非零的净变化量
+        if (!deltas.isEmpty()) {
+            int[] deltaIds = deltas.keySet().stream().mapToInt(Integer::intValue).toArray();
+            int[] deltaValues = Arrays.stream(deltaIds).map(deltas::get).toArray();
+            int updated = mapper.addToBalances(deltaIds, deltaValues);
+            Assert.state(updated == deltaIds.length, "Expected " + deltaIds.length + " accounts to be updated but was " + updated);
+        }
+        return outcomes;
     }
 
     @Override
     @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @SingleStatement
+    // 写入的是确定的结果，40003 后重新执行是安全的
+    @TransactionRetry(retryAmbiguous = true)
+    public void updateAccount(Account account) {
+        accountCache.onWrite(account.getId());
+        // 条带化账户的条带随之删除，之后账户的余额就是写入的值
+        mapper.replaceAccount(account);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    @FollowerRead
+    @SingleStatement
     public long findCountOfAccounts() {
         return mapper.findCountOfAccounts();
     }
 
     @Override
     @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @SingleStatement
+    // 写入的是确定的结果，40003 后重新执行是安全的
+    @TransactionRetry(retryAmbiguous = true)
     public int deleteAllAccounts() {
+        accountCache.onWriteAll();
+        // account_stripes 中的条带随账户级联删除
         return mapper.deleteAllAccounts();
     }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void stripeAccount(int id, int stripes) {
+        Assert.isTrue(stripes > 0, "stripes must be positive");
+        accountCache.onWrite(id);
+        List<Account> accounts = mapper.findAccountsByIdsForUpdate(new int[] {id});
+        Assert.isTrue(!accounts.isEmpty(), "Account " + id + " does not exist");
+        int total = accounts.get(0).getBalance();
+        for (int balance : mapper.findStripeBalancesForUpdate(id)) {
+            total = Math.addExact(total, balance);
+        }
+        mapper.deleteStripes(id);
+        writeStripes(id, accounts.get(0).getBalance(), total, stripes);
+        mapper.updateStripeCount(id, stripes);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public TransferOutcome transferFundsStriped(int fromId, int toId, int amount) {
+        Transfer transfer = new Transfer(fromId, toId, amount);
+        if (amount <= 0 || fromId == toId) {
+            return TransferOutcome.rejected(transfer, TransferOutcome.Status.INVALID);
+        }
+        accountCache.onWrite(fromId, toId);
+        TransferOutcome.Status status = transferStriped(fromId, toId, amount);
+        if (status != TransferOutcome.Status.APPLIED) {
+            // 入账可能已经写入，标记回滚而不是抛出异常，以免被当作可重试的失败
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return TransferOutcome.rejected(transfer, status);
+        }
+        return new TransferOutcome(transfer, TransferOutcome.Status.APPLIED, null, null);
+    }
+
+    /**
+     * 支持条带化账户的转账，必须在事务中调用；返回值不是 APPLIED 时入账可能已经写入，调用方负责回滚。
+     * 先入账：转入账户不存在时不会写入任何行。
+     */
+    private TransferOutcome.Status transferStriped(int fromId, int toId, int amount) {
+        if (mapper.creditAccount(toId, amount) == 0 && mapper.creditRandomStripe(toId, amount) == 0) {
+            return TransferOutcome.Status.UNKNOWN_ACCOUNT;
+        }
+        return debitStriped(fromId, amount);
+    }
+
+    private TransferOutcome.Status debitStriped(int id, int amount) {
+        if (mapper.debitAccount(id, amount) == 1 || mapper.debitRandomStripe(id, amount) == 1) {
+            return TransferOutcome.Status.APPLIED;
+        }
+        // 基础余额或随机选中的条带余额不足：先锁定 accounts 中的行，再锁定所有条带，按总余额判断
+        List<Account> accounts = mapper.findAccountsByIdsForUpdate(new int[] {id});
+        if (accounts.isEmpty()) {
+            return TransferOutcome.Status.UNKNOWN_ACCOUNT;
+        }
+        int base = accounts.get(0).getBalance();
+        List<Integer> balances = mapper.findStripeBalancesForUpdate(id);
+        long total = base;
+        for (int balance : balances) {
+            total += balance;
+        }
+        if (total < amount) {
+            return TransferOutcome.Status.INSUFFICIENT_FUNDS;
+        }
+        if (balances.isEmpty()) {
+            // 未条带化：加锁期间有并发入账，基础余额已经足够
+            Account account = new Account();
+            account.setId(id);
+            account.setBalance(base - amount);
+            mapper.updateAccount(account);
+        } else {
+            writeStripes(id, base, (int) (total - amount), balances.size());
+        }
+        return TransferOutcome.Status.APPLIED;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean rebalanceStripes(int id) {
+        // 与 stripeAccount 和 debitStriped 相同的加锁顺序：先 accounts，后 account_stripes
+        List<Account> accounts = mapper.findAccountsByIdsForUpdate(new int[] {id});
+        if (accounts.isEmpty()) {
+            return false;
+        }
+        List<Integer> balances = mapper.findStripeBalancesForUpdate(id);
+        if (balances.isEmpty()) {
+            return false;
+        }
+        int base = accounts.get(0).getBalance();
+        int total = base;
+        int min = Integer.MAX_VALUE;
+        for (int balance : balances) {
+            total = Math.addExact(total, balance);
+            min = Math.min(min, balance);
+        }
+        if (base == 0 && min >= total / balances.size() / 2) {
+            return false;
+        }
+        accountCache.onWrite(id);
+        writeStripes(id, base, total, balances.size());
+        return true;
+    }
+
+    /**
+     * 把 total 平均分配到 stripes 个条带（余数分给编号最小的条带），并在需要时把基础余额置为 0。
+     */
+    private void writeStripes(int id, int base, int total, int stripes) {
+        int[] balances = new int[stripes];
+        for (int i = 0; i < stripes; i++) {
+            balances[i] = total / stripes + (i < total % stripes ? 1 : 0);
+        }
+        mapper.upsertStripes(id, balances);
+        if (base != 0) {
+            Account account = new Account();
+            account.setId(id);
+            account.setBalance(0);
+            mapper.updateAccount(account);
+        }
+    }
 }
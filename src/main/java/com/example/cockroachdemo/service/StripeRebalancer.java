@@ -0,0 +1,76 @@
+package com.example.cockroachdemo.service;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import com.example.cockroachdemo.mapper.AccountMapper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * 条带化账户的后台重新平衡：每隔 interval-millis 对所有已条带化的账户调用 AccountService.rebalanceStripes，
+ * 把因随机扣款而变得不均匀的条带重新平均分配，使 transferFundsStriped 尽量走单条带扣款的快速路径。
+ * 每个账户在独立的事务中处理，某个账户失败只记录日志，下一轮再试。
+ * 仅当 cockroachdemo.striping.rebalance.enabled=true 时启用。
+ */
+@Component
+@ConditionalOnProperty(name = "cockroachdemo.striping.rebalance.enabled", havingValue = "true")
+public class StripeRebalancer {
+    private static final Logger logger = LoggerFactory.getLogger(StripeRebalancer.class);
+
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private AccountMapper mapper;
+    @Value("${cockroachdemo.striping.rebalance.interval-millis:1000}")
+    private long intervalMillis;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stripe-rebalancer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::rebalanceAll, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 重新平衡所有已条带化的账户。
+     *
+     * @return 重写了条带的账户数量
+     */
+    public int rebalanceAll() {
+        int rebalanced = 0;
+        try {
+            for (int id : mapper.findStripedAccountIds()) {
+                try {
+                    if (accountService.rebalanceStripes(id)) {
+                        rebalanced++;
+                    }
+                } catch (RuntimeException ex) {
+                    logger.warn("Rebalancing stripes of account {} failed: {}", id, ex.getMessage());
+                }
+            }
+        } catch (RuntimeException ex) {
+            logger.warn("Listing striped accounts failed: {}", ex.getMessage());
+        }
+        return rebalanced;
+    }
+}
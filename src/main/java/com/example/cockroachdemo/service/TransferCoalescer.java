@@ -0,0 +1,207 @@
+package com.example.cockroachdemo.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import com.example.cockroachdemo.model.Transfer;
+import com.example.cockroachdemo.model.TransferOutcome;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * 转账的组提交（group commit）层：
+ * - 按转出账户把并发提交的转账分到 shards 个分片，每个分片维护一个等待队列
+ * - 分片收到第一笔转账后等待 window-millis，再把队列中的转账（每批最多 max-batch-size 笔）
+ * 通过 AccountService.transferFundsBatch 合并到一个事务中执行
+ * - 每个分片同一时间只有一个批次在执行，执行期间到达的转账会进入下一批，因此负载越高批次越大
+ *
+ * 每笔转账仍按提交顺序单独校验（包括余额不足拒绝），调用方的 future 以该笔转账自己的结果完成；
+ * 批次事务失败（重试耗尽等）时，该批中所有 future 以同一个异常完成。
+ * 关闭后提交的转账不会入队，返回的 future 以 RejectedExecutionException 完成。
+ * 仅当 cockroachdemo.coalesce.enabled=true 时启用。
+ */
+@Component
+@ConditionalOnProperty(name = "cockroachdemo.coalesce.enabled", havingValue = "true")
+public class TransferCoalescer {
+    private static final Logger logger = LoggerFactory.getLogger(TransferCoalescer.class);
+
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Value("${cockroachdemo.coalesce.window-millis:2}")
+    private long windowMillis;
+    @Value("${cockroachdemo.coalesce.max-batch-size:256}")
+    private int maxBatchSize;
+    @Value("${cockroachdemo.coalesce.shards:16}")
+    private int shardCount;
+
+    private Shard[] shards;
+    private ScheduledExecutorService scheduler;
+    private DistributionSummary batchSizes;
+    private volatile boolean closed;
+
+    @PostConstruct
+    void init() {
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "transfer-coalescer-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        // 每个分片同一时间最多一个批次在执行
+        scheduler = Executors.newScheduledThreadPool(shardCount, threadFactory);
+        batchSizes = DistributionSummary.builder("cockroach.coalesce.batch.size")
+                .description("Transfers merged into one coalesced transaction")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * 关闭时已排队的转账仍会在等待窗口结束后执行。
+     */
+    @PreDestroy
+    void shutdown() {
+        closed = true;
+        scheduler.shutdown();
+    }
+
+    /**
+     * 提交一笔转账，返回的 future 在其所在批次的事务提交后以该笔转账的结果完成。
+     */
+    public CompletableFuture<TransferOutcome> submit(Transfer transfer) {
+        CompletableFuture<TransferOutcome> future = new CompletableFuture<>();
+        if (closed) {
+            future.completeExceptionally(new RejectedExecutionException("TransferCoalescer has been shut down"));
+            return future;
+        }
+        Shard shard = shards[Math.floorMod(Integer.hashCode(transfer.getFromId()), shards.length)];
+        List<PendingTransfer> rejected;
+        synchronized (shard) {
+            shard.pending.add(new PendingTransfer(transfer, future));
+            if (shard.draining) {
+                return future;
+            }
+            rejected = scheduleDrain(shard);
+        }
+        fail(rejected, new RejectedExecutionException("TransferCoalescer has been shut down"));
+        return future;
+    }
+
+    public CompletableFuture<TransferOutcome> submit(int fromId, int toId, int amount) {
+        return submit(new Transfer(fromId, toId, amount));
+    }
+
+    /**
+     * 为分片安排一次 drain，调用方必须持有分片的锁。
+     * 调度器已关闭时清空分片的队列并返回其中的转账，由调用方在锁外以异常完成它们。
+     */
+    private List<PendingTransfer> scheduleDrain(Shard shard) {
+        try {
+            scheduler.schedule(() -> drain(shard), windowMillis, TimeUnit.MILLISECONDS);
+            shard.draining = true;
+            return List.of();
+        } catch (RejectedExecutionException ex) {
+            shard.draining = false;
+            List<PendingTransfer> rejected = new ArrayList<>(shard.pending);
+            shard.pending.clear();
+            return rejected;
+        }
+    }
+
+    private void drain(Shard shard) {
+        boolean finished = false;
+        try {
+            while (true) {
+                List<PendingTransfer> batch;
+                synchronized (shard) {
+                    if (shard.pending.isEmpty()) {
+                        shard.draining = false;
+                        finished = true;
+                        return;
+                    }
+                    int size = Math.min(shard.pending.size(), maxBatchSize);
+                    List<PendingTransfer> head = shard.pending.subList(0, size);
+                    batch = new ArrayList<>(head);
+                    head.clear();
+                }
+                execute(batch);
+            }
+        } finally {
+            if (!finished) {
+                // 异常退出：不能让 draining 停留在 true，否则该分片之后的转账永远不会执行
+                List<PendingTransfer> rejected = List.of();
+                synchronized (shard) {
+                    shard.draining = false;
+                    if (!shard.pending.isEmpty()) {
+                        rejected = scheduleDrain(shard);
+                    }
+                }
+                fail(rejected, new RejectedExecutionException("TransferCoalescer has been shut down"));
+            }
+        }
+    }
+
+    private void execute(List<PendingTransfer> batch) {
+        List<TransferOutcome> outcomes;
+        try {
+            List<Transfer> transfers = new ArrayList<>(batch.size());
+            for (PendingTransfer pending : batch) {
+                transfers.add(pending.transfer);
+            }
+            batchSizes.record(transfers.size());
+            outcomes = accountService.transferFundsBatch(transfers);
+        } catch (Throwable ex) {
+            // 包括 Error：该批的每个 future 都必须完成，调用方不能永远等待
+            logger.warn("Coalesced transfer batch of {} failed: {}", batch.size(), ex.getMessage());
+            fail(batch, ex);
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).future.complete(outcomes.get(i));
+        }
+    }
+
+    private static void fail(List<PendingTransfer> batch, Throwable ex) {
+        for (PendingTransfer pending : batch) {
+            pending.future.completeExceptionally(ex);
+        }
+    }
+
+    private static class Shard {
+        private final List<PendingTransfer> pending = new ArrayList<>();
+        /** 已安排或正在执行 drain，期间新到达的转账只入队 */
+        private boolean draining;
+    }
+
+    private static class PendingTransfer {
+        private final Transfer transfer;
+        private final CompletableFuture<TransferOutcome> future;
+
+        PendingTransfer(Transfer transfer, CompletableFuture<TransferOutcome> future) {
+            this.transfer = transfer;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.cockroachdemo.workload;
+
+/**
+ * 负载生成器选择账户 id 的分布。
+ */
+public enum KeyDistribution {
+    /** 所有账户被访问的概率相同 */
+    UNIFORM,
+    /** Zipfian 分布：少数账户（id 越小越热）承担大部分访问，用于模拟热点争用 */
+    ZIPFIAN
+}
@@ -0,0 +1,18 @@
+package com.example.cockroachdemo.workload;
+
+/**
+ * 在 [0, keyCount) 中生成账户 id，实现必须是线程安全的。
+ */
+public interface KeyGenerator {
+    int nextKey();
+
+    static KeyGenerator create(KeyDistribution distribution, int keyCount, double zipfianConstant) {
+        switch (distribution) {
+            case ZIPFIAN:
+                return new ZipfianKeyGenerator(keyCount, zipfianConstant);
+            case UNIFORM:
+            default:
+                return new UniformKeyGenerator(keyCount);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.cockroachdemo.workload;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 均匀分布的账户 id。
+ */
+public class UniformKeyGenerator implements KeyGenerator {
+    private final int keyCount;
+
+    public UniformKeyGenerator(int keyCount) {
+        this.keyCount = keyCount;
+    }
+
+    @Override
+    public int nextKey() {
+        return ThreadLocalRandom.current().nextInt(keyCount);
+    }
+}
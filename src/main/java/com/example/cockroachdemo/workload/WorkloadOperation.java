@@ -0,0 +1,13 @@
+package com.example.cockroachdemo.workload;
+
+/**
+ * 负载中的操作类型。
+ */
+public enum WorkloadOperation {
+    /** AccountService.getAccount */
+    READ,
+    /** AccountService.transferFundsChecked */
+    TRANSFER,
+    /** AccountService.addAccounts（单个新账户） */
+    INSERT
+}
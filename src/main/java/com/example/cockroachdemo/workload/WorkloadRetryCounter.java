@@ -0,0 +1,53 @@
+package com.example.cockroachdemo.workload;
+
+import java.lang.reflect.Method;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.example.cockroachdemo.retry.RetryListener;
+import com.example.cockroachdemo.retry.TransientErrorType;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * 按负载操作类型统计事务重试次数：负载线程在执行操作期间通过 runAs 标记当前操作，
+ * RetryableTransactionAspect 在同一线程上回调 onBackoff 时计入该操作。
+ */
+@Component
+@Profile("workload")
+public class WorkloadRetryCounter implements RetryListener {
+    private final ThreadLocal<WorkloadOperation> currentOperation = new ThreadLocal<>();
+    private final Map<WorkloadOperation, LongAdder> retries = new EnumMap<>(WorkloadOperation.class);
+
+    public WorkloadRetryCounter() {
+        for (WorkloadOperation operation : WorkloadOperation.values()) {
+            retries.put(operation, new LongAdder());
+        }
+    }
+
+    public void runAs(WorkloadOperation operation, Runnable runnable) {
+        currentOperation.set(operation);
+        try {
+            runnable.run();
+        } finally {
+            currentOperation.remove();
+        }
+    }
+
+    @Override
+    public void onBackoff(Method method, TransientErrorType errorType, long backoffMillis) {
+        WorkloadOperation operation = currentOperation.get();
+        if (operation != null) {
+            retries.get(operation).increment();
+        }
+    }
+
+    /**
+     * 返回并清零该操作自上次调用以来的重试次数。
+     */
+    public long drainRetries(WorkloadOperation operation) {
+        return retries.get(operation).sumThenReset();
+    }
+}
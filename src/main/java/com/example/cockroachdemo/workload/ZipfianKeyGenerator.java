@@ -0,0 +1,49 @@
+package com.example.cockroachdemo.workload;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Zipfian 分布的账户 id（Gray 等人 "Quickly Generating Billion-Record Synthetic Databases" 中的算法，与 YCSB 相同）：
+ * id 为 k 的概率与 1 / (k + 1)^zipfianConstant 成正比，常数越接近 1 热点越集中（YCSB 默认 0.99）。
+ * zeta 常数在构造时计算一次（O(keyCount)），之后每次生成只需要一个随机数。
+ */
+public class ZipfianKeyGenerator implements KeyGenerator {
+    private final int keyCount;
+    private final double theta;
+    private final double zetaN;
+    private final double alpha;
+    private final double eta;
+
+    public ZipfianKeyGenerator(int keyCount, double zipfianConstant) {
+        if (zipfianConstant <= 0 || zipfianConstant >= 1) {
+            throw new IllegalArgumentException("zipfianConstant must be in (0, 1) but was " + zipfianConstant);
+        }
+        this.keyCount = keyCount;
+        this.theta = zipfianConstant;
+        this.zetaN = zeta(keyCount, theta);
+        this.alpha = 1.0 / (1.0 - theta);
+        this.eta = (1 - Math.pow(2.0 / keyCount, 1 - theta)) / (1 - zeta(2, theta) / zetaN);
+    }
+
+    @Override
+    public int nextKey() {
+        double u = ThreadLocalRandom.current().nextDouble();
+        double uz = u * zetaN;
+        if (uz < 1.0) {
+            return 0;
+        }
+        if (uz < 1.0 + Math.pow(0.5, theta)) {
+            return Math.min(1, keyCount - 1);
+        }
+        int key = (int) (keyCount * Math.pow(eta * u - eta + 1, alpha));
+        return Math.min(key, keyCount - 1);
+    }
+
+    private static double zeta(long n, double theta) {
+        double sum = 0;
+        for (long i = 1; i <= n; i++) {
+            sum += 1 / Math.pow(i, theta);
+        }
+        return sum;
+    }
+}
@@ -1,20 +1,52 @@
 package com.example.cockroachdemo;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.example.cockroachdemo.cache.AccountCache;
+import com.example.cockroachdemo.idgen.IdAllocator;
+import com.example.cockroachdemo.metrics.StatementTimingInterceptor;
 import com.example.cockroachdemo.model.Account;
+import com.example.cockroachdemo.model.AccountPage;
 import com.example.cockroachdemo.model.BatchResults;
+import com.example.cockroachdemo.model.ChunkedLoadOptions;
+import com.example.cockroachdemo.model.LoadCheckpoint;
+import com.example.cockroachdemo.model.ParallelBatchResults;
+import com.example.cockroachdemo.model.Transfer;
+import com.example.cockroachdemo.model.TransferOutcome;
 import com.example.cockroachdemo.service.AccountService;
+import com.example.cockroachdemo.service.AsyncAccountService;
+import com.example.cockroachdemo.service.MyBatisAccountService;
+import com.example.cockroachdemo.service.TransferCoalescer;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.util.TestPropertyValues;
 import org.springframework.context.ApplicationContextInitializer;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.interceptor.TransactionAttributeSource;
 import org.testcontainers.containers.CockroachContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
@@ -27,6 +59,20 @@ class CockroachDemoApplicationTests {
 
     @Autowired
     private AccountService accountService;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private StatementTimingInterceptor statementTimingInterceptor;
+    @Autowired
+    private IdAllocator idAllocator;
+    @Autowired
+    private AsyncAccountService asyncAccountService;
+    @Autowired
+    private FollowerReadAspect followerReadAspect;
+    @Autowired
+    private SingleStatementAutocommit singleStatementAutocommit;
+    @Autowired
+    private TransactionAttributeSource transactionAttributeSource;
     @Container
     private static CockroachContainer cockroachDb = new CockroachContainer();
 
@@ -88,6 +134,202 @@ class CockroachDemoApplicationTests {
         assertThat(accountService.getAccount(2)).hasValueSatisfying(a -> assertThat(a.getBalance()).isEqualTo(350));
     }
 
+    @Test
+    public void testMetricsRecorded() {
+        accountService.bulkInsertRandomAccountData(300, 100);
+        accountService.findCountOfAccounts();
+
+        assertThat(meterRegistry.get("cockroach.batch.flush.rows").summary().count()).isGreaterThanOrEqualTo(3);
+        assertThat(meterRegistry.get("cockroach.tx.attempts").tag("method", "MyBatisAccountService.findCountOfAccounts")
+                .counter().count()).isGreaterThanOrEqualTo(1);
+        assertThat(meterRegistry.get("cockroach.tx.latency").tag("method", "MyBatisAccountService.findCountOfAccounts")
+                .tag("outcome", "success").timer().count()).isGreaterThanOrEqualTo(1);
+        assertThat(statementTimingInterceptor.getStatementStats())
+                .containsKey("com.example.cockroachdemo.mapper.AccountMapper.findCountOfAccounts")
+                .containsKey("com.example.cockroachdemo.batchmapper.BatchAccountMapper.insertNewAccount!flush");
+    }
+
+    @Test
+    public void testTransferFundsChecked() {
+        accountService.addAccounts(newAccount(1, 1000), newAccount(2, 250));
+
+        TransferOutcome applied = accountService.transferFundsChecked(1, 2, 100);
+        assertThat(applied.getStatus()).isEqualTo(TransferOutcome.Status.APPLIED);
+        assertThat(applied.getFromBalance()).isEqualTo(900);
+        assertThat(applied.getToBalance()).isEqualTo(350);
+
+        assertThat(accountService.transferFundsChecked(2, 1, 351).getStatus())
+                .isEqualTo(TransferOutcome.Status.INSUFFICIENT_FUNDS);
+        assertThat(accountService.transferFundsChecked(1, 3, 10).getStatus())
+                .isEqualTo(TransferOutcome.Status.UNKNOWN_ACCOUNT);
+        assertThat(accountService.transferFundsChecked(1, 1, 10).getStatus())
+                .isEqualTo(TransferOutcome.Status.INVALID);
+
+        assertThat(accountService.getAccount(3)).isEmpty();
+        assertThat(accountService.getAccount(1)).hasValueSatisfying(a -> assertThat(a.getBalance()).isEqualTo(900));
+        assertThat(accountService.getAccount(2)).hasValueSatisfying(a -> assertThat(a.getBalance()).isEqualTo(350));
+    }
+
+    @Test
+    public void testStripedTransfers() {
+        accountService.addAccounts(newAccount(1, 1000), newAccount(2, 0));
+        accountService.stripeAccount(1, 8);
+        assertThat(accountService.getAccount(1)).hasValueSatisfying(a -> assertThat(a.getBalance()).isEqualTo(1000));
+
+        // 并发扣款分散在各条带上；随机条带余额不足时走锁定全部条带的慢路径，总余额恰好够 100 笔
+        List<TransferOutcome> outcomes = IntStream.range(0, 100).parallel()
+                .mapToObj(i -> accountService.transferFundsStriped(1, 2, 10))
+                .collect(Collectors.toList());
+        assertThat(outcomes).allMatch(TransferOutcome::isApplied);
+        Map<Integer, Account> accounts = accountService.getAccounts(1, 2);
+        assertThat(accounts.get(1).getBalance()).isEqualTo(0);
+        assertThat(accounts.get(2).getBalance()).isEqualTo(1000);
+
+        // 被拒绝的转账不保留已写入的入账
+        assertThat(accountService.transferFundsStriped(1, 2, 1).getStatus())
+                .isEqualTo(TransferOutcome.Status.INSUFFICIENT_FUNDS);
+        assertThat(accountService.transferFundsStriped(4, 2, 1).getStatus())
+                .isEqualTo(TransferOutcome.Status.UNKNOWN_ACCOUNT);
+        assertThat(accountService.transferFundsStriped(2, 4, 1).getStatus())
+                .isEqualTo(TransferOutcome.Status.UNKNOWN_ACCOUNT);
+        assertThat(accountService.getAccount(2)).hasValueSatisfying(a -> assertThat(a.getBalance()).isEqualTo(1000));
+
+        accountService.stripeAccount(2, 4);
+        assertThat(accountService.transferFundsStriped(2, 1, 300).isApplied()).isTrue();
+        // 入账集中在账户 1 的一个条带上，需要重新平衡；账户 2 在慢路径中已经平均分配
+        assertThat(accountService.rebalanceStripes(1)).isTrue();
+        assertThat(accountService.rebalanceStripes(1)).isFalse();
+        assertThat(accountService.rebalanceStripes(2)).isFalse();
+        accounts = accountService.getAccounts(1, 2);
+        assertThat(accounts.get(1).getBalance()).isEqualTo(300);
+        assertThat(accounts.get(2).getBalance()).isEqualTo(700);
+
+        // 其他转账方法同样按总余额处理条带化账户，而不是只看基础余额
+        assertThat(accountService.transferFunds(2, 1, 100)).isEqualTo(2);
+        assertThatThrownBy(() -> accountService.transferFunds(2, 1, 1000))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        TransferOutcome checked = accountService.transferFundsChecked(1, 2, 400);
+        assertThat(checked.isApplied()).isTrue();
+        assertThat(checked.getFromBalance()).isEqualTo(0);
+        assertThat(checked.getToBalance()).isEqualTo(1000);
+        assertThat(accountService.transferFundsChecked(1, 2, 1).getStatus())
+                .isEqualTo(TransferOutcome.Status.INSUFFICIENT_FUNDS);
+        List<TransferOutcome> batch = accountService.transferFundsBatch(List.of(
+                new Transfer(2, 1, 250),
+                new Transfer(1, 2, 300)));
+        assertThat(batch).extracting(TransferOutcome::getStatus).containsExactly(
+                TransferOutcome.Status.APPLIED, TransferOutcome.Status.INSUFFICIENT_FUNDS);
+        accounts = accountService.getAccounts(1, 2);
+        assertThat(accounts.get(1).getBalance()).isEqualTo(250);
+        assertThat(accounts.get(2).getBalance()).isEqualTo(750);
+        // 批量转账的净入账只写入账户 1 的一个条带，与单笔转账一样留给 rebalanceStripes 重新平衡
+        assertThat(accountService.rebalanceStripes(1)).isTrue();
+
+        // updateAccount 取消条带化，之后的余额就是写入的值
+        accountService.updateAccount(newAccount(1, 42));
+        assertThat(accountService.getAccount(1)).hasValueSatisfying(a -> assertThat(a.getBalance()).isEqualTo(42));
+        assertThat(accountService.rebalanceStripes(1)).isFalse();
+        assertThat(accountService.transferFunds(1, 2, 2)).isEqualTo(2);
+        accounts = accountService.getAccounts(1, 2);
+        assertThat(accounts.get(1).getBalance()).isEqualTo(40);
+        assertThat(accounts.get(2).getBalance()).isEqualTo(752);
+    }
+
+    @Test
+    public void testAsyncTransfers() {
+        asyncAccountService.addAccounts(newAccount(1, 50), newAccount(2, 0)).join();
+        long callsBefore = transferCheckedCalls();
+
+        List<CompletableFuture<TransferOutcome>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(asyncAccountService.transferFundsChecked(1, 2, 1));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        assertThat(futures).filteredOn(future -> future.join().isApplied()).hasSize(50);
+        // 每个异步调用（含其所有重试）在指标中只记为一次调用
+        assertThat(transferCheckedCalls() - callsBefore).isEqualTo(100);
+        Map<Integer, Account> accounts = asyncAccountService.getAccounts(1, 2).join();
+        assertThat(accounts.get(1).getBalance()).isEqualTo(0);
+        assertThat(accounts.get(2).getBalance()).isEqualTo(50);
+    }
+
+    /** transferFundsChecked 成功结束的调用次数；指标在第一次调用时才注册 */
+    private long transferCheckedCalls() {
+        Timer timer = meterRegistry.find("cockroach.tx.latency")
+                .tag("method", "MyBatisAccountService.transferFundsChecked").tag("outcome", "success").timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    @Test
+    public void testFollowerReads() throws InterruptedException {
+        accountService.addAccounts(newAccount(1, 1001));
+
+        followerReadAspect.setDefaultAsOf("-1s");
+        followerReadAspect.setEnabled(true);
+        try {
+            // 等待 1 秒前的快照包含刚插入的账户（而不是上一个测试删除之前的数据）
+            awaitSnapshot("snapshot after insert", () -> followerBalance(1) == 1001
+                    && accountService.findCountOfAccounts() == 1);
+
+            accountService.updateAccount(newAccount(1, 2002));
+            accountService.addAccounts(newAccount(2, 0));
+
+            // 读取 1 秒前的快照：看不到刚才的写入
+            assertThat(accountService.getAccount(1)).hasValueSatisfying(a -> assertThat(a.getBalance()).isEqualTo(1001));
+            assertThat(accountService.findCountOfAccounts()).isEqualTo(1);
+
+            awaitSnapshot("snapshot after update", () -> followerBalance(1) == 2002
+                    && accountService.findCountOfAccounts() == 2);
+        } finally {
+            followerReadAspect.setEnabled(false);
+            followerReadAspect.setDefaultAsOf("follower_read_timestamp()");
+        }
+    }
+
+    private int followerBalance(int id) {
+        return accountService.getAccount(id).map(Account::getBalance).orElse(-1);
+    }
+
+    /**
+     * 轮询直到快照满足条件，而不是固定等待：快照时间点相对于服务器时钟，客户端无法精确预测何时越过某次写入。
+     */
+    private static void awaitSnapshot(String description, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as(description).isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+
+    @Test
+    public void testTransferBatch() {
+        accountService.addAccounts(newAccount(1, 1000), newAccount(2, 250), newAccount(3, 0));
+
+        List<TransferOutcome> outcomes = accountService.transferFundsBatch(List.of(
+                new Transfer(1, 2, 100),
+                new Transfer(3, 1, 50),
+                new Transfer(2, 3, 300),
+                new Transfer(3, 1, 50),
+                new Transfer(1, 99, 10),
+                new Transfer(1, 1, 10)));
+
+        assertThat(outcomes).extracting(TransferOutcome::getStatus).containsExactly(
+                TransferOutcome.Status.APPLIED,
+                TransferOutcome.Status.INSUFFICIENT_FUNDS,
+                TransferOutcome.Status.APPLIED,
+                TransferOutcome.Status.APPLIED,
+                TransferOutcome.Status.UNKNOWN_ACCOUNT,
+                TransferOutcome.Status.INVALID);
+        assertThat(outcomes.get(3).getFromBalance()).isEqualTo(250);
+        assertThat(outcomes.get(3).getToBalance()).isEqualTo(950);
+
+        Map<Integer, Account> accounts = accountService.getAccounts(1, 2, 3);
+        assertThat(accounts.get(1).getBalance()).isEqualTo(950);
+        assertThat(accounts.get(2).getBalance()).isEqualTo(50);
+        assertThat(accounts.get(3).getBalance()).isEqualTo(250);
+    }
+
     @Test
     public void testMassInsertWith500() {
         BatchResults results = accountService.bulkInsertRandomAccountData(500);
@@ -119,4 +361,345 @@ class CockroachDemoApplicationTests {
         assertThat(results.getTotalRowsAffected()).isEqualTo(15);
         assertThat(accountService.findCountOfAccounts()).isEqualTo(15);
     }
+
+    @Test
+    public void testParallelMassInsert() {
+        ParallelBatchResults results = accountService.bulkInsertRandomAccountDataInParallel(2000, 128, 4);
+        assertThat(results.getPartitions()).hasSize(4);
+        assertThat(results.getNumberOfBatches()).isEqualTo(16);
+        assertThat(results.getTotalRowsAffected()).isEqualTo(2000);
+        assertThat(accountService.findCountOfAccounts()).isEqualTo(2000);
+    }
+
+    @Test
+    public void testChunkedInsertWithResume() {
+        List<LoadCheckpoint> checkpoints = new ArrayList<>();
+        ChunkedLoadOptions options = new ChunkedLoadOptions();
+        options.setRowsPerChunk(300);
+        options.setProgressListener(checkpoints::add);
+
+        BatchResults results = accountService.bulkLoadInChunks(
+                IntStream.range(0, 600).mapToObj(i -> newAccount(i, i)).iterator(), options);
+        assertThat(results.getNumberOfBatches()).isEqualTo(2);
+        assertThat(results.getTotalRowsAffected()).isEqualTo(600);
+        assertThat(checkpoints).extracting(LoadCheckpoint::getRowsCommitted).containsExactly(300L, 600L);
+        assertThat(checkpoints.get(1).getLastCommittedId()).isEqualTo(599);
+
+        // 从上一次的断点继续导入同一个数据源，已提交的行被跳过
+        options.setResumeFromRow(checkpoints.get(1).getRowsCommitted());
+        results = accountService.bulkLoadInChunks(
+                IntStream.range(0, 1000).mapToObj(i -> newAccount(i, i)).iterator(), options);
+        assertThat(results.getNumberOfBatches()).isEqualTo(2);
+        assertThat(results.getTotalRowsAffected()).isEqualTo(400);
+        assertThat(checkpoints.get(checkpoints.size() - 1).getRowsCommitted()).isEqualTo(1000L);
+        assertThat(accountService.findCountOfAccounts()).isEqualTo(1000);
+    }
+
+    @Test
+    public void testScanAllAccounts() {
+        accountService.bulkLoadAccounts(IntStream.range(0, 2500).mapToObj(i -> newAccount(i, i)));
+
+        List<Integer> ids = new ArrayList<>();
+        long scanned = accountService.scanAllAccounts(account -> ids.add(account.getId()));
+        assertThat(scanned).isEqualTo(2500);
+        assertThat(ids).isSorted().hasSize(2500);
+    }
+
+    @Test
+    public void testMultiGet() {
+        accountService.bulkLoadAccounts(IntStream.range(0, 3000).mapToObj(i -> newAccount(i, i * 10)));
+
+        Map<Integer, Account> accounts = accountService.getAccounts(IntStream.range(0, 2500).map(i -> i * 2).toArray());
+        assertThat(accounts).hasSize(1500);
+        assertThat(accounts.get(42).getBalance()).isEqualTo(420);
+        assertThat(accounts).doesNotContainKey(3000);
+
+        assertThat(accountService.getAccounts(List.of(1, 1, 2, -5)).keySet()).containsExactlyInAnyOrder(1, 2);
+    }
+
+    @Test
+    public void testKeysetPagination() {
+        accountService.bulkLoadAccounts(IntStream.range(0, 250).mapToObj(i -> newAccount(i * 2, i)));
+
+        List<Integer> ids = new ArrayList<>();
+        int pages = 0;
+        AccountPage page = accountService.findAccountsPage(null, 100);
+        while (true) {
+            pages++;
+            page.getAccounts().forEach(account -> ids.add(account.getId()));
+            if (!page.hasNext()) {
+                break;
+            }
+            page = accountService.findAccountsPage(page.getNextAfterId(), 100);
+        }
+        assertThat(pages).isEqualTo(3);
+        assertThat(ids).hasSize(250).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void testCopyLoad() {
+        BatchResults results = accountService.bulkLoadAccounts(IntStream.range(0, 500).mapToObj(i -> newAccount(i, i * 10)));
+        assertThat(results.getTotalRowsAffected()).isEqualTo(500);
+        assertThat(accountService.findCountOfAccounts()).isEqualTo(500);
+        assertThat(accountService.getAccount(42)).hasValueSatisfying(a -> assertThat(a.getBalance()).isEqualTo(420));
+    }
+
+    @Test
+    public void testSingleStatementAutocommit() {
+        accountService.addAccounts(newAccount(1, 1000), newAccount(2, 0));
+
+        // 延迟对比见 src/jmh 中的 SingleStatementAutocommitBenchmark，这里只验证 autocommit 模式下结果不变
+        singleStatementAutocommit.setEnabled(true);
+        try {
+            for (int i = 0; i < 10; i++) {
+                assertThat(accountService.transferFunds(1, 2, 1)).isEqualTo(2);
+            }
+            assertThat(accountService.findCountOfAccounts()).isEqualTo(2);
+        } finally {
+            singleStatementAutocommit.setEnabled(false);
+        }
+
+        Map<Integer, Account> accounts = accountService.getAccounts(1, 2);
+        assertThat(accounts.get(1).getBalance()).isEqualTo(990);
+        assertThat(accounts.get(2).getBalance()).isEqualTo(10);
+    }
+
+    @Test
+    public void testAutocommitKeepsFollowerReadTransactions() throws NoSuchMethodException {
+        Method getAccount = MyBatisAccountService.class.getMethod("getAccount", int.class);
+        Method transferFunds = MyBatisAccountService.class.getMethod("transferFunds", int.class, int.class, int.class);
+
+        singleStatementAutocommit.setEnabled(true);
+        try {
+            assertThat(propagation(getAccount)).isEqualTo(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+
+            // AS OF SYSTEM TIME 需要显式事务：follower reads 启用期间 @FollowerRead 方法不改为 autocommit
+            followerReadAspect.setEnabled(true);
+            try {
+                assertThat(propagation(getAccount)).isEqualTo(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+                assertThat(propagation(transferFunds)).isEqualTo(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+            } finally {
+                followerReadAspect.setEnabled(false);
+            }
+        } finally {
+            singleStatementAutocommit.setEnabled(false);
+        }
+    }
+
+    private int propagation(Method method) {
+        return transactionAttributeSource.getTransactionAttribute(method, MyBatisAccountService.class)
+                .getPropagationBehavior();
+    }
+
+    @Test
+    public void testAllocatedIdsAreUniqueAndSpread() {
+        int count = 20000;
+        // 多个线程各自租用 id 块
+        Set<Integer> ids = IntStream.range(0, count).parallel()
+                .map(i -> idAllocator.nextId())
+                .boxed()
+                .collect(Collectors.toSet());
+        assertThat(ids).hasSize(count);
+
+        // 按最高 3 位把 id 空间分成 8 个区间，置换后每个区间约占 1/8
+        int[] buckets = new int[8];
+        ids.forEach(id -> buckets[id >>> 28]++);
+        assertThat(buckets).allMatch(bucket -> bucket > count / 16);
+
+        // 纯插入：多次随机插入的 id 互不冲突，每一行都是新账户；
+        // 每次调用需要的 id 多于 block-size（1000），在同一个事务中跨越块边界租用新块
+        accountService.bulkInsertRandomAccountData(1500, 500);
+        accountService.bulkInsertRandomAccountData(1500, 500);
+        assertThat(accountService.findCountOfAccounts()).isEqualTo(3000);
+    }
+
+    /**
+     * 启用 AccountCache 的独立上下文，其他测试读取的都是数据库中的最新值。
+     */
+    @Nested
+    @TestPropertySource(properties = "cockroachdemo.cache.enabled=true")
+    class CachedReads {
+        @Autowired
+        private AccountService accountService;
+        @Autowired
+        private AccountCache accountCache;
+
+        @Test
+        public void testCachedReadsInvalidatedByWrites() {
+            accountService.addAccounts(newAccount(1, 1000), newAccount(2, 250));
+
+            long hitsBefore = accountCache.getStats().hitCount();
+            assertThat(accountService.getAccount(1)).hasValueSatisfying(a -> assertThat(a.getBalance()).isEqualTo(1000));
+            assertThat(accountService.getAccount(1)).hasValueSatisfying(a -> assertThat(a.getBalance()).isEqualTo(1000));
+            assertThat(accountCache.getStats().hitCount()).isEqualTo(hitsBefore + 1);
+
+            accountService.transferFunds(1, 2, 100);
+            assertThat(accountService.getAccount(1)).hasValueSatisfying(a -> assertThat(a.getBalance()).isEqualTo(900));
+
+            accountService.updateAccount(newAccount(1, 42));
+            assertThat(accountService.getAccount(1)).hasValueSatisfying(a -> assertThat(a.getBalance()).isEqualTo(42));
+
+            accountService.deleteAllAccounts();
+            assertThat(accountService.getAccount(1)).isEmpty();
+        }
+    }
+
+    /**
+     * 启用 TransferCoalescer 的独立上下文。
+     */
+    @Nested
+    @TestPropertySource(properties = "cockroachdemo.coalesce.enabled=true")
+    class CoalescedTransfers {
+        @Autowired
+        private AccountService accountService;
+        @Autowired
+        private MeterRegistry meterRegistry;
+        @Autowired
+        private TransferCoalescer transferCoalescer;
+
+        @Test
+        public void testCoalescedTransfers() {
+            accountService.addAccounts(newAccount(1, 1000), newAccount(2, 0));
+
+            List<CompletableFuture<TransferOutcome>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                futures.add(transferCoalescer.submit(1, 2, 10));
+            }
+            List<TransferOutcome> outcomes = new ArrayList<>();
+            for (CompletableFuture<TransferOutcome> future : futures) {
+                outcomes.add(future.join());
+            }
+
+            assertThat(outcomes).filteredOn(TransferOutcome::isApplied).hasSize(100);
+            assertThat(outcomes).filteredOn(outcome -> !outcome.isApplied())
+                    .extracting(TransferOutcome::getStatus)
+                    .containsOnly(TransferOutcome.Status.INSUFFICIENT_FUNDS);
+            assertThat(meterRegistry.get("cockroach.coalesce.batch.size").summary().count()).isLessThan(200);
+
+            Map<Integer, Account> accounts = accountService.getAccounts(1, 2);
+            assertThat(accounts.get(1).getBalance()).isEqualTo(0);
+            assertThat(accounts.get(2).getBalance()).isEqualTo(1000);
+        }
+    }
+
+    /**
+     * 启用按工作负载划分连接池的独立上下文：其余测试使用单个连接池，这里的计数只来自本类中的调用。
+     */
+    @Nested
+    @TestPropertySource(properties = "cockroachdemo.pools.enabled=true")
+    class ConnectionPools {
+        private final List<String> pools = List.of("read", "write", "bulk");
+
+        @Autowired
+        private AccountService accountService;
+        @Autowired
+        private MeterRegistry meterRegistry;
+
+        @Test
+        public void testConnectionPoolRouting() {
+            accountService.addAccounts(newAccount(1, 100));
+
+            // 只读事务从 read 池获取连接
+            Map<String, Long> before = acquiredByPool();
+            accountService.getAccounts(1, 2);
+            assertThat(acquiredSince(before)).containsEntry("read", 1L).containsEntry("write", 0L)
+                    .containsEntry("bulk", 0L);
+
+            // 读写事务从 write 池获取连接
+            before = acquiredByPool();
+            accountService.updateAccount(newAccount(1, 200));
+            assertThat(acquiredSince(before)).containsEntry("read", 0L).containsEntry("write", 1L)
+                    .containsEntry("bulk", 0L);
+
+            // COPY 导入从 bulk 池获取连接
+            before = acquiredByPool();
+            accountService.bulkLoadAccounts(IntStream.range(10, 20).mapToObj(i -> newAccount(i, i)));
+            Map<String, Long> bulk = acquiredSince(before);
+            assertThat(bulk).containsEntry("read", 0L).containsEntry("write", 0L);
+            assertThat(bulk.get("bulk")).isGreaterThan(0);
+        }
+
+        /** 每个连接池单独导出获取连接的等待时间，其计数即获取连接的次数；连接池在第一次获取连接时才启动并注册指标 */
+        private Map<String, Long> acquiredByPool() {
+            Map<String, Long> acquired = new HashMap<>();
+            for (String pool : pools) {
+                Timer timer = meterRegistry.find("hikaricp.connections.acquire").tag("pool", pool).timer();
+                acquired.put(pool, timer == null ? 0L : timer.count());
+            }
+            return acquired;
+        }
+
+        private Map<String, Long> acquiredSince(Map<String, Long> before) {
+            Map<String, Long> delta = new HashMap<>();
+            acquiredByPool().forEach((pool, count) -> delta.put(pool, count - before.get(pool)));
+            return delta;
+        }
+    }
+
+    /**
+     * cockroachdemo.batch.rows-per-statement > 1 的独立上下文：批量写入合并为多行语句后，批次数量和影响的行数保持不变。
+     */
+    @Nested
+    @TestPropertySource(properties = "cockroachdemo.batch.rows-per-statement=4")
+    class MultiRowStatements {
+        @Autowired
+        private AccountService accountService;
+        @Autowired
+        private MeterRegistry meterRegistry;
+
+        @Test
+        public void testMultiRowInsertsReportBatchesAndRows() {
+            BatchResults results = accountService.bulkInsertRandomAccountData(500, 128);
+            assertThat(results.getNumberOfBatches()).isEqualTo(4);
+            assertThat(results.getTotalRowsAffected()).isEqualTo(500);
+            assertThat(accountService.findCountOfAccounts()).isEqualTo(500);
+        }
+
+        @Test
+        public void testMultiRowUpsertSplitsOnDuplicateIds() {
+            double statementsBefore = meterRegistry.get("cockroach.batch.flush.statements").summary().totalAmount();
+
+            // 重复的 id 1 使语句在它之前切分：[1, 2]、[1, 3, 4, 5]、[6]，三种行数各生成一条语句
+            BatchResults results = accountService.addAccounts(newAccount(1, 10), newAccount(2, 20), newAccount(1, 11),
+                    newAccount(3, 30), newAccount(4, 40), newAccount(5, 50), newAccount(6, 60));
+            assertThat(results.getNumberOfBatches()).isEqualTo(1);
+            assertThat(results.getTotalRowsAffected()).isEqualTo(7);
+            assertThat(meterRegistry.get("cockroach.batch.flush.statements").summary().totalAmount())
+                    .isEqualTo(statementsBefore + 3);
+
+            // 与逐行 upsert 相同，后写入的行覆盖先写入的行
+            assertThat(accountService.findCountOfAccounts()).isEqualTo(6);
+            assertThat(accountService.getAccount(1)).hasValueSatisfying(a -> assertThat(a.getBalance()).isEqualTo(11));
+        }
+    }
+
+    /**
+     * 并行分区数多于连接池大小的独立上下文：每个分区在自己的事务连接上租用 id 块，不需要第二个连接。
+     */
+    @Nested
+    @TestPropertySource(properties = {
+            "spring.datasource.hikari.maximum-pool-size=4",
+            "spring.datasource.hikari.connection-timeout=5000",
+            "cockroachdemo.bulk.parallel.threads=8"
+    })
+    class SmallConnectionPool {
+        @Autowired
+        private AccountService accountService;
+
+        @Test
+        public void testParallelInsertWithMorePartitionsThanConnections() {
+            // 8 个分区同时运行但只有 4 个连接，每个分区都在事务中租用自己的第一个 id 块
+            ParallelBatchResults results = accountService.bulkInsertRandomAccountDataInParallel(4000, 128, 8);
+            assertThat(results.getPartitions()).hasSize(8);
+            assertThat(results.getTotalRowsAffected()).isEqualTo(4000);
+            assertThat(accountService.findCountOfAccounts()).isEqualTo(4000);
+        }
+    }
+
+    private static Account newAccount(int id, int balance) {
+        Account account = new Account();
+        account.setId(id);
+        account.setBalance(balance);
+        return account;
+    }
 }
@@ -0,0 +1,119 @@
+package com.example.cockroachdemo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import javax.sql.DataSource;
+
+import com.example.cockroachdemo.faultinjection.FaultInjectingDataSource;
+import com.example.cockroachdemo.faultinjection.FaultInjector;
+import com.example.cockroachdemo.faultinjection.FaultInjector.Fault;
+import com.example.cockroachdemo.model.Account;
+import com.example.cockroachdemo.retry.TransientErrorType;
+import com.example.cockroachdemo.service.AccountService;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * 不依赖数据库的重试测试：DataSource 被替换为 FaultInjectingDataSource，按设定的概率注入 40001、40003 和连接断开，
+ * 验证 RetryableTransactionAspect 的重试行为；不同故障率下的吞吐量见 src/jmh 中的 RetryFaultInjectionBenchmark。
+ * 退避时间被缩短到毫秒级，使测试关注重试次数而不是等待时间。
+ */
+@SpringBootTest(properties = {
+        "cockroachdemo.retry.initial-backoff-millis=1",
+        "cockroachdemo.retry.max-backoff-millis=5",
+        "cockroachdemo.retry.connection.min-backoff-millis=1"
+})
+@ActiveProfiles("test")
+class RetryFaultInjectionTests {
+    @TestConfiguration
+    static class FaultInjectionConfiguration {
+        @Bean
+        public FaultInjector faultInjector() {
+            return new FaultInjector();
+        }
+
+        @Bean
+        @Primary
+        public DataSource dataSource(FaultInjector faultInjector) {
+            return new FaultInjectingDataSource(faultInjector);
+        }
+    }
+
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private FaultInjector faultInjector;
+
+    @BeforeEach
+    private void setup() {
+        faultInjector.reset();
+    }
+
+    @Test
+    public void testSerializationFailuresAreRetried() {
+        faultInjector.rate(Fault.SERIALIZATION_FAILURE, 0.3)
+                .rate(Fault.SERIALIZATION_FAILURE_ON_COMMIT, 0.1);
+
+        for (int i = 0; i < 200; i++) {
+            accountService.updateAccount(newAccount(1, i));
+        }
+
+        assertThat(faultInjector.getInjected(Fault.SERIALIZATION_FAILURE)).isGreaterThan(0);
+        assertThat(faultInjector.getInjected(Fault.SERIALIZATION_FAILURE_ON_COMMIT)).isGreaterThan(0);
+        // 每次调用最终成功提交一次，失败的提交都被重试
+        assertThat(faultInjector.getCommits())
+                .isEqualTo(200 + faultInjector.getInjected(Fault.SERIALIZATION_FAILURE_ON_COMMIT));
+        assertThat(faultInjector.getStatements())
+                .isEqualTo(faultInjector.getCommits() + faultInjector.getInjected(Fault.SERIALIZATION_FAILURE));
+    }
+
+    @Test
+    public void testAmbiguousCommitsAreNotRetriedByDefault() {
+        faultInjector.rate(Fault.AMBIGUOUS_COMMIT, 1.0);
+
+        // 转账不是幂等的：提交可能已经生效，重新执行会重复转账
+        assertThatThrownBy(() -> accountService.transferFunds(1, 2, 10))
+                .satisfies(ex -> assertThat(TransientErrorType.classify(ex)).isEqualTo(TransientErrorType.AMBIGUOUS_RESULT));
+        assertThat(faultInjector.getCommits()).isEqualTo(1);
+    }
+
+    @Test
+    public void testAmbiguousCommitsAreRetriedForIdempotentMethods() {
+        faultInjector.rate(Fault.AMBIGUOUS_COMMIT, 0.5);
+
+        // updateAccount 通过 @TransactionRetry(retryAmbiguous = true) 启用 40003 重试
+        for (int i = 0; i < 50; i++) {
+            accountService.updateAccount(newAccount(1, i));
+        }
+
+        assertThat(faultInjector.getInjected(Fault.AMBIGUOUS_COMMIT)).isGreaterThan(0);
+        assertThat(faultInjector.getCommits()).isEqualTo(50 + faultInjector.getInjected(Fault.AMBIGUOUS_COMMIT));
+    }
+
+    @Test
+    public void testConnectionDropsGiveUpAfterConnectionMaxAttempts() {
+        faultInjector.rate(Fault.CONNECTION_DROP, 1.0);
+
+        assertThatThrownBy(() -> accountService.updateAccount(newAccount(1, 100)))
+                .isInstanceOf(ConcurrencyFailureException.class);
+        // cockroachdemo.retry.connection.max-attempts 默认为 5
+        assertThat(faultInjector.getStatements()).isEqualTo(5);
+        assertThat(faultInjector.getCommits()).isZero();
+    }
+
+    private static Account newAccount(int id, int balance) {
+        Account account = new Account();
+        account.setId(id);
+        account.setBalance(balance);
+        return account;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.cockroachdemo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.cockroachdemo.faultinjection.FaultInjector;
+import com.example.cockroachdemo.faultinjection.FaultInjector.Fault;
+import com.example.cockroachdemo.model.Account;
+import com.example.cockroachdemo.service.AccountService;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * 启用 SavepointRetryAspect 时的 `SAVEPOINT cockroach_restart` 重试路径（使用 FaultInjectingDataSource，不需要数据库）：
+ * 40001 回滚到 savepoint 后在同一个事务（同一个连接）中重新执行，而不是由 RetryableTransactionAspect 开启新事务。
+ */
+@SpringBootTest(properties = {
+        "cockroachdemo.retry.savepoint.enabled=true",
+        "cockroachdemo.retry.initial-backoff-millis=1",
+        "cockroachdemo.retry.max-backoff-millis=5"
+})
+@Import(RetryFaultInjectionTests.FaultInjectionConfiguration.class)
+@ActiveProfiles("test")
+class SavepointRetryTests {
+
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private FaultInjector faultInjector;
+
+    @BeforeEach
+    private void setup() {
+        faultInjector.reset();
+    }
+
+    @Test
+    public void testSerializationFailureIsRetriedInSameTransaction() {
+        faultInjector.failNext(Fault.SERIALIZATION_FAILURE, 2);
+
+        accountService.updateAccount(newAccount(1, 100));
+
+        // 两次失败的尝试都回滚到 savepoint，第三次尝试成功：只获取一次连接、只提交一次，整个事务从未回滚
+        assertThat(faultInjector.getInjected(Fault.SERIALIZATION_FAILURE)).isEqualTo(2);
+        assertThat(faultInjector.getStatements()).isEqualTo(3);
+        assertThat(faultInjector.getSavepointRollbacks()).isEqualTo(2);
+        assertThat(faultInjector.getConnections()).isEqualTo(1);
+        assertThat(faultInjector.getRollbacks()).isZero();
+        assertThat(faultInjector.getCommits()).isEqualTo(1);
+    }
+
+    @Test
+    public void testSerializationFailureOnCommitRestartsTransaction() {
+        faultInjector.failNext(Fault.SERIALIZATION_FAILURE_ON_COMMIT, 1);
+
+        accountService.updateAccount(newAccount(1, 100));
+
+        // 提交发生在 savepoint 切面之外：提交时的 40001 仍由 RetryableTransactionAspect 在新事务中重试
+        assertThat(faultInjector.getSavepointRollbacks()).isZero();
+        assertThat(faultInjector.getConnections()).isEqualTo(2);
+        assertThat(faultInjector.getCommits()).isEqualTo(2);
+    }
+
+    private static Account newAccount(int id, int balance) {
+        Account account = new Account();
+        account.setId(id);
+        account.setBalance(balance);
+        return account;
+    }
+}
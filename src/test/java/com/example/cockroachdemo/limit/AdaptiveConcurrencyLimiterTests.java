@@ -0,0 +1,178 @@
+package com.example.cockroachdemo.limit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import com.example.cockroachdemo.ConcurrencyLimitAspect;
+import com.example.cockroachdemo.retry.TransientErrorType;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * AdaptiveConcurrencyLimiter 的 AIMD 调整和排队超时，以及 ConcurrencyLimitAspect 的拒绝行为（不需要 Spring 上下文和数据库）。
+ */
+class AdaptiveConcurrencyLimiterTests {
+    private static final long LATENCY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private AdaptiveConcurrencyLimiter limiter;
+    private Method method;
+
+    @BeforeEach
+    private void setup() throws NoSuchMethodException {
+        limiter = newLimiter(10, 100, 1000);
+        method = AdaptiveConcurrencyLimiterTests.class.getDeclaredMethod("transfer");
+    }
+
+    @Test
+    public void testLimitIncreasesAdditivelyWithoutCongestion() {
+        // 每次 +1/limit：limit 为 10 时约 10 次无拥塞的调用使 limit 增加 1
+        for (int i = 0; i < 11; i++) {
+            limiter.onComplete(method, 1, LATENCY_NANOS, null);
+        }
+        assertThat(limiter.getLimit(method)).isEqualTo(11);
+
+        // 不超过 max-limit
+        for (int i = 0; i < 30000; i++) {
+            limiter.onComplete(method, 1, LATENCY_NANOS, null);
+        }
+        assertThat(limiter.getLimit(method)).isEqualTo(200);
+    }
+
+    @Test
+    public void testLimitDecreasesMultiplicativelyOnCongestion() {
+        limiter.onComplete(method, 1, LATENCY_NANOS, null);
+        int limit = limiter.getLimit(method);
+
+        // 发生重试
+        limiter.onComplete(method, 3, LATENCY_NANOS, null);
+        assertThat(limiter.getLimit(method)).isEqualTo((int) (limit * 0.9));
+
+        // 以瞬时错误失败
+        limiter.onComplete(method, 1, LATENCY_NANOS, sqlError("40001"));
+        assertThat(limiter.getLimit(method)).isEqualTo((int) (limit * 0.9 * 0.9));
+
+        // 延迟超过基线的 latency-tolerance 倍
+        limiter.onComplete(method, 1, LATENCY_NANOS * 3, null);
+        assertThat(limiter.getLimit(method)).isEqualTo((int) (limit * 0.9 * 0.9 * 0.9));
+
+        // 不低于 min-limit
+        for (int i = 0; i < 100; i++) {
+            limiter.onComplete(method, 2, LATENCY_NANOS, null);
+        }
+        assertThat(limiter.getLimit(method)).isEqualTo(1);
+    }
+
+    @Test
+    public void testNonTransientFailureDoesNotReduceLimit() {
+        limiter.onComplete(method, 1, LATENCY_NANOS, null);
+        int limit = limiter.getLimit(method);
+
+        limiter.onComplete(method, 1, LATENCY_NANOS, sqlError("23505"));
+        assertThat(limiter.getLimit(method)).isGreaterThanOrEqualTo(limit);
+    }
+
+    @Test
+    public void testQueuedCallTimesOutWhenNoPermitIsReleased() throws InterruptedException {
+        limiter = newLimiter(1, 1, 50);
+        assertThat(limiter.acquire(method)).isTrue();
+
+        long start = System.nanoTime();
+        assertThat(limiter.acquire(method)).isFalse();
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+
+        // 归还许可后可以再次获得
+        limiter.release(method);
+        assertThat(limiter.acquire(method)).isTrue();
+    }
+
+    @Test
+    public void testQueuedCallIsAdmittedWhenPermitIsReleased() throws Exception {
+        limiter = newLimiter(1, 1, 5000);
+        assertThat(limiter.acquire(method)).isTrue();
+
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            limiter.release(method);
+        });
+        releaser.start();
+        assertThat(limiter.acquire(method)).isTrue();
+        releaser.join();
+    }
+
+    @Test
+    public void testFullQueueRejectsImmediately() throws InterruptedException {
+        limiter = newLimiter(1, 0, 5000);
+        assertThat(limiter.acquire(method)).isTrue();
+
+        long start = System.nanoTime();
+        assertThat(limiter.acquire(method)).isFalse();
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void testAspectRejectsWithNonTransientException() throws Throwable {
+        limiter = newLimiter(1, 0, 0);
+        ConcurrencyLimitAspect aspect = new ConcurrencyLimitAspect();
+        ReflectionTestUtils.setField(aspect, "limiter", limiter);
+        ProceedingJoinPoint pjp = joinPoint();
+        when(pjp.proceed()).thenReturn("done");
+
+        assertThat(aspect.limitedOperation(pjp, null)).isEqualTo("done");
+
+        // 占用唯一的许可后，下一次调用被拒绝，且不会被当作可重试的瞬时错误
+        assertThat(limiter.acquire(method)).isTrue();
+        ProceedingJoinPoint rejected = joinPoint();
+        assertThatThrownBy(() -> aspect.limitedOperation(rejected, null))
+                .isInstanceOf(AdmissionRejectedException.class)
+                .isInstanceOf(NonTransientDataAccessException.class)
+                .satisfies(ex -> assertThat(TransientErrorType.classify(ex)).isEqualTo(TransientErrorType.NOT_TRANSIENT));
+        verify(rejected, never()).proceed();
+    }
+
+    private ProceedingJoinPoint joinPoint() {
+        MethodSignature signature = mock(MethodSignature.class);
+        when(signature.getMethod()).thenReturn(method);
+        when(signature.toLongString()).thenReturn(method.toString());
+        ProceedingJoinPoint pjp = mock(ProceedingJoinPoint.class);
+        when(pjp.getSignature()).thenReturn(signature);
+        return pjp;
+    }
+
+    private static AdaptiveConcurrencyLimiter newLimiter(int initialLimit, int maxQueueSize, long maxWaitMillis) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter();
+        ReflectionTestUtils.setField(limiter, "initialLimit", initialLimit);
+        ReflectionTestUtils.setField(limiter, "minLimit", 1);
+        ReflectionTestUtils.setField(limiter, "maxLimit", 200);
+        ReflectionTestUtils.setField(limiter, "backoffRatio", 0.9);
+        ReflectionTestUtils.setField(limiter, "latencyTolerance", 2.0);
+        ReflectionTestUtils.setField(limiter, "maxQueueSize", maxQueueSize);
+        ReflectionTestUtils.setField(limiter, "maxWaitMillis", maxWaitMillis);
+        return limiter;
+    }
+
+    private static UncategorizedSQLException sqlError(String sqlState) {
+        return new UncategorizedSQLException("test", "select 1", new SQLException("injected", sqlState));
+    }
+
+    @SuppressWarnings("unused")
+    private void transfer() {
+    }
+}
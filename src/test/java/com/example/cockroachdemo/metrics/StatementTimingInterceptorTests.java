@@ -0,0 +1,111 @@
+package com.example.cockroachdemo.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.InvocationTargetException;
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.executor.BatchExecutorException;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+/**
+ * StatementTimingInterceptor 对失败调用的计时和对 flush 耗时的拆分（不需要 Spring 上下文和数据库）。
+ */
+class StatementTimingInterceptorTests {
+    private final Configuration configuration = new Configuration();
+    private final StatementTimingInterceptor interceptor = new StatementTimingInterceptor(1000, 16);
+
+    @Test
+    public void testFailingStatementsAreCounted() throws Exception {
+        MappedStatement ms = mappedStatement("ns.update");
+        Invocation invocation = invocation(() -> {
+            throw new SQLException("injected", "40001");
+        }, ms, new Object());
+
+        assertThatThrownBy(() -> interceptor.intercept(invocation)).hasCauseInstanceOf(SQLException.class);
+        Map<String, Long> stats = interceptor.getStatementStats().get("ns.update");
+        assertThat(stats).containsEntry("count", 1L).containsEntry("errors", 1L).containsEntry("rows", 0L);
+    }
+
+    @Test
+    public void testFlushTimeIsSplitAcrossStatements() throws Throwable {
+        BatchResult inserts = batchResult("ns.insert", 3);
+        BatchResult updates = batchResult("ns.update", 1);
+        interceptor.intercept(invocation(() -> {
+            TimeUnit.MILLISECONDS.sleep(40);
+            return List.of(inserts, updates);
+        }));
+
+        Map<String, Map<String, Long>> stats = interceptor.getStatementStats();
+        long insertMicros = stats.get("ns.insert!flush").get("totalMicros");
+        long updateMicros = stats.get("ns.update!flush").get("totalMicros");
+        // 3 条 insert 和 1 条 update 按 3:1 分摊，合计为整个 flush 的耗时
+        assertThat(insertMicros).isBetween(3 * updateMicros - 1, 3 * updateMicros + 3);
+        assertThat(insertMicros + updateMicros).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toMicros(40) - 2);
+        assertThat(stats.get("ns.insert!flush")).containsEntry("count", 1L).containsEntry("rows", 3L);
+        assertThat(stats.get("ns.update!flush")).containsEntry("count", 1L).containsEntry("rows", 1L);
+        assertThat(stats.get("ns.insert")).containsEntry("rows", 3L);
+    }
+
+    @Test
+    public void testFailedFlushIsAttributedToFailedBatch() throws Exception {
+        BatchResult inserts = batchResult("ns.insert", 2);
+        BatchResult failed = new BatchResult(mappedStatement("ns.update"), "update t set v = ?");
+        failed.addParameterObject(new Object());
+        Invocation invocation = invocation(() -> {
+            throw new BatchExecutorException("injected", new BatchUpdateException(), List.of(inserts), failed);
+        });
+
+        assertThatThrownBy(() -> interceptor.intercept(invocation)).hasCauseInstanceOf(BatchExecutorException.class);
+        Map<String, Map<String, Long>> stats = interceptor.getStatementStats();
+        assertThat(stats.get("ns.insert!flush")).containsEntry("count", 1L).containsEntry("errors", 0L);
+        assertThat(stats.get("ns.update!flush")).containsEntry("count", 1L).containsEntry("errors", 1L);
+    }
+
+    private MappedStatement mappedStatement(String id) {
+        return new MappedStatement.Builder(configuration, id,
+                new StaticSqlSource(configuration, "update t set v = ?"), SqlCommandType.UPDATE).build();
+    }
+
+    private BatchResult batchResult(String id, int statements) {
+        BatchResult batchResult = new BatchResult(mappedStatement(id), "update t set v = ?");
+        int[] updateCounts = new int[statements];
+        for (int i = 0; i < statements; i++) {
+            batchResult.addParameterObject(new Object());
+            updateCounts[i] = 1;
+        }
+        batchResult.setUpdateCounts(updateCounts);
+        return batchResult;
+    }
+
+    /**
+     * 以 target 作为被拦截的调用；args 为空时相当于 flushStatements。
+     * 与 Invocation.proceed 的反射调用一样，target 抛出的异常包装在 InvocationTargetException 中。
+     */
+    private static Invocation invocation(Callable<?> target, Object... args) throws Exception {
+        Invocation invocation = mock(Invocation.class);
+        when(invocation.getArgs()).thenReturn(args);
+        when(invocation.proceed()).thenAnswer(answer -> {
+            try {
+                return target.call();
+            } catch (Exception ex) {
+                throw new InvocationTargetException(ex);
+            }
+        });
+        return invocation;
+    }
+}
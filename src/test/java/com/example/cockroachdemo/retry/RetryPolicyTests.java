@@ -0,0 +1,118 @@
+package com.example.cockroachdemo.retry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.transaction.TransactionSystemException;
+
+/**
+ * TransientErrorType 的分类和 ExponentialJitterRetryPolicy 的退避计算（不需要 Spring 上下文和数据库）。
+ */
+class RetryPolicyTests {
+
+    @Test
+    public void testClassifiesRecognizedSqlStates() {
+        assertThat(TransientErrorType.classify(sqlError("40001"))).isEqualTo(TransientErrorType.SERIALIZATION_FAILURE);
+        assertThat(TransientErrorType.classify(sqlError("40P01"))).isEqualTo(TransientErrorType.DEADLOCK);
+        assertThat(TransientErrorType.classify(sqlError("40003"))).isEqualTo(TransientErrorType.AMBIGUOUS_RESULT);
+        assertThat(TransientErrorType.classify(sqlError("08006"))).isEqualTo(TransientErrorType.CONNECTION_FAILURE);
+        assertThat(TransientErrorType.classify(sqlError("57P01"))).isEqualTo(TransientErrorType.CONNECTION_FAILURE);
+        assertThat(TransientErrorType.classify(sqlError("55P03"))).isEqualTo(TransientErrorType.OTHER_TRANSIENT);
+        assertThat(TransientErrorType.classify(sqlError("23505"))).isEqualTo(TransientErrorType.NOT_TRANSIENT);
+    }
+
+    @Test
+    public void testClassifiesThroughWrappers() {
+        assertThat(TransientErrorType.classify(new UndeclaredThrowableException(new SQLException("restart", "40001"))))
+                .isEqualTo(TransientErrorType.SERIALIZATION_FAILURE);
+        assertThat(TransientErrorType.classify(new TransactionSystemException("commit failed", new SQLException("ambiguous", "40003"))))
+                .isEqualTo(TransientErrorType.AMBIGUOUS_RESULT);
+        assertThat(TransientErrorType.classify(new SQLTransientConnectionException("pool timeout")))
+                .isEqualTo(TransientErrorType.CONNECTION_FAILURE);
+    }
+
+    @Test
+    public void testTransientExceptionsWithoutSqlStateAreNotRetried() {
+        // 例如 mybatis-spring 的 ExecutorType 冲突：编程错误，重试只会掩盖它
+        assertThat(TransientErrorType.classify(new TransientDataAccessResourceException(
+                "Cannot change the ExecutorType when there is an existing transaction")))
+                .isEqualTo(TransientErrorType.NOT_TRANSIENT);
+        assertThat(TransientErrorType.classify(new TransactionSystemException("no SQLSTATE")))
+                .isEqualTo(TransientErrorType.NOT_TRANSIENT);
+        assertThat(TransientErrorType.classify(new IllegalStateException()))
+                .isEqualTo(TransientErrorType.NOT_TRANSIENT);
+    }
+
+    @Test
+    public void testAmbiguousResultsAreOnlyRetriedWhenEnabled() throws NoSuchMethodException {
+        RetryPolicy policy = policy(Jitter.NONE);
+        assertThat(policy.isRetryable(TransientErrorType.AMBIGUOUS_RESULT)).isFalse();
+        assertThat(policy.isRetryable(TransientErrorType.SERIALIZATION_FAILURE)).isTrue();
+        assertThat(policy.isRetryable(TransientErrorType.NOT_TRANSIENT)).isFalse();
+
+        TransactionRetry idempotent = getClass().getDeclaredMethod("idempotentOperation").getAnnotation(TransactionRetry.class);
+        assertThat(policy.withOverrides(idempotent).isRetryable(TransientErrorType.AMBIGUOUS_RESULT)).isTrue();
+    }
+
+    @Test
+    public void testExponentialBackoffWithoutJitter() {
+        RetryPolicy policy = policy(Jitter.NONE);
+        long[] expected = {100, 200, 400, 800, 1000, 1000};
+        for (int attempt = 1; attempt <= expected.length; attempt++) {
+            assertThat(policy.nextBackoffMillis(TransientErrorType.SERIALIZATION_FAILURE, attempt, 0))
+                    .isEqualTo(expected[attempt - 1]);
+        }
+    }
+
+    @Test
+    public void testFullJitterStaysWithinExponentialCap() {
+        RetryPolicy policy = policy(Jitter.FULL);
+        long max = 0;
+        for (int i = 0; i < 1000; i++) {
+            long backoff = policy.nextBackoffMillis(TransientErrorType.SERIALIZATION_FAILURE, 3, 0);
+            assertThat(backoff).isBetween(0L, 400L);
+            max = Math.max(max, backoff);
+        }
+        // 均匀分布在 [0, 400] 内，不会总是取上限或下限
+        assertThat(max).isGreaterThan(200L);
+    }
+
+    @Test
+    public void testDecorrelatedJitterGrowsFromPreviousBackoff() {
+        RetryPolicy policy = policy(Jitter.DECORRELATED);
+        long previous = 0;
+        for (int attempt = 1; attempt <= 20; attempt++) {
+            long backoff = policy.nextBackoffMillis(TransientErrorType.SERIALIZATION_FAILURE, attempt, previous);
+            assertThat(backoff).isBetween(100L, Math.min(1000L, Math.max(100L, previous * 3)));
+            previous = backoff;
+        }
+    }
+
+    @Test
+    public void testConnectionFailuresUseTheirOwnLimits() {
+        RetryPolicy policy = policy(Jitter.FULL);
+        assertThat(policy.getMaxAttempts(TransientErrorType.CONNECTION_FAILURE)).isEqualTo(5);
+        assertThat(policy.getMaxAttempts(TransientErrorType.SERIALIZATION_FAILURE)).isEqualTo(30);
+        for (int i = 0; i < 100; i++) {
+            assertThat(policy.nextBackoffMillis(TransientErrorType.CONNECTION_FAILURE, 1, 0)).isGreaterThanOrEqualTo(500L);
+        }
+    }
+
+    @TransactionRetry(retryAmbiguous = true)
+    private void idempotentOperation() {
+    }
+
+    private static RetryPolicy policy(Jitter jitter) {
+        return new ExponentialJitterRetryPolicy(30, 100, 1000, 2.0, jitter, 5, 500, false);
+    }
+
+    private static Exception sqlError(String sqlState) {
+        return new UncategorizedSQLException("test", "select 1", new SQLException("injected", sqlState));
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.cockroachdemo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.example.cockroachdemo.model.Transfer;
+import com.example.cockroachdemo.model.TransferOutcome;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * TransferCoalescer 在批次失败和关闭时的行为（AccountService 被替换为 mock，不需要 Spring 上下文和数据库）。
+ */
+class TransferCoalescerTests {
+    private AccountService accountService;
+    private TransferCoalescer coalescer;
+
+    @BeforeEach
+    private void setup() {
+        accountService = mock(AccountService.class);
+        coalescer = new TransferCoalescer();
+        ReflectionTestUtils.setField(coalescer, "accountService", accountService);
+        ReflectionTestUtils.setField(coalescer, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(coalescer, "windowMillis", 1L);
+        ReflectionTestUtils.setField(coalescer, "maxBatchSize", 16);
+        ReflectionTestUtils.setField(coalescer, "shardCount", 1);
+        coalescer.init();
+    }
+
+    @AfterEach
+    private void teardown() {
+        coalescer.shutdown();
+    }
+
+    @Test
+    public void testErrorInBatchCompletesFuturesAndKeepsShardDraining() {
+        Transfer transfer = new Transfer(1, 2, 10);
+        when(accountService.transferFundsBatch(anyList()))
+                .thenThrow(new AssertionError("boom"))
+                .thenReturn(List.of(new TransferOutcome(transfer, TransferOutcome.Status.APPLIED, 0, 10)));
+
+        CompletableFuture<TransferOutcome> failed = coalescer.submit(transfer);
+        assertThat(failed).failsWithin(5, TimeUnit.SECONDS)
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(AssertionError.class);
+
+        // 同一个分片上之后提交的转账仍会被执行
+        assertThat(coalescer.submit(transfer).join().isApplied()).isTrue();
+    }
+
+    @Test
+    public void testSubmitAfterShutdownIsRejected() {
+        coalescer.shutdown();
+
+        CompletableFuture<TransferOutcome> future = coalescer.submit(1, 2, 10);
+        assertThat(future).isCompletedExceptionally();
+        assertThat(future.handle((outcome, ex) -> ex).join()).isInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test
+    public void testRejectedScheduleDoesNotStrandShard() {
+        // 绕过 closed 标志，模拟 submit 与 shutdown 并发：调度器已关闭但 submit 还没有看到
+        ReflectionTestUtils.<ScheduledExecutorService>getField(coalescer, "scheduler").shutdown();
+
+        CompletableFuture<TransferOutcome> first = coalescer.submit(1, 2, 10);
+        CompletableFuture<TransferOutcome> second = coalescer.submit(1, 2, 10);
+        assertThat(first).isCompletedExceptionally();
+        // draining 没有停留在 true：第二笔转账也立即被拒绝，而不是留在队列中
+        assertThat(second).isCompletedExceptionally();
+        assertThat(second.handle((outcome, ex) -> ex).join()).isInstanceOf(RejectedExecutionException.class);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.cockroachdemo.workload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * KeyGenerator 的 UNIFORM 和 ZIPFIAN 分布（不需要 Spring 上下文和数据库）。
+ */
+class KeyGeneratorTests {
+
+    @Test
+    public void testZipfianKeysAreSkewed() {
+        int keyCount = 1000;
+        int samples = 100000;
+        int[] zipfianCounts = new int[keyCount];
+        int[] uniformCounts = new int[keyCount];
+        KeyGenerator zipfian = KeyGenerator.create(KeyDistribution.ZIPFIAN, keyCount, 0.99);
+        KeyGenerator uniform = KeyGenerator.create(KeyDistribution.UNIFORM, keyCount, 0.99);
+        for (int i = 0; i < samples; i++) {
+            zipfianCounts[zipfian.nextKey()]++;
+            uniformCounts[uniform.nextKey()]++;
+        }
+
+        // 1000 个 key、常数 0.99 时最热的 key 约占 13% 的访问，均匀分布下约占 0.1%
+        assertThat(zipfianCounts[0]).isGreaterThan(samples / 20);
+        assertThat(zipfianCounts[0]).isGreaterThan(zipfianCounts[10]);
+        assertThat(uniformCounts[0]).isLessThan(samples / 200);
+    }
+}
@@ -0,0 +1,311 @@
+package com.example.cockroachdemo.faultinjection;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Savepoint;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * 进程内的 JDBC 替身：不连接任何数据库，所有连接、语句和结果集都是动态代理。
+ * - 更新语句返回 1 行受影响，查询（select / returning）返回空结果集
+ * - 每条语句执行前和每次提交前由 FaultInjector 注入延迟和故障（40001、40003、连接断开等）
+ * - 支持 savepoint，获取连接、回滚事务和回滚到 savepoint 的次数记录在 FaultInjector 中
+ * - 元数据报告为 PostgreSQL，使 Spring/MyBatis 按真实驱动的方式翻译注入的 SQLException
+ *
+ * 用于在没有数据库的机器上测试和测量（见 src/jmh 中的 RetryFaultInjectionBenchmark）RetryableTransactionAspect 的重试、退避和吞吐量行为，
+ * 只适用于不依赖查询结果的服务方法（例如 updateAccount、transferFunds）。
+ */
+public class FaultInjectingDataSource implements DataSource {
+    private final FaultInjector injector;
+
+    public FaultInjectingDataSource(FaultInjector injector) {
+        this.injector = injector;
+    }
+
+    public FaultInjector getInjector() {
+        return injector;
+    }
+
+    @Override
+    public Connection getConnection() {
+        injector.onConnection();
+        return proxy(Connection.class, new ConnectionHandler());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) {
+        return getConnection();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(FaultInjectingDataSource.class.getClassLoader(), new Class<?>[] {type}, handler));
+    }
+
+    /**
+     * 处理 Object 的方法，其余未显式处理的方法返回返回类型的默认值。
+     */
+    private abstract static class StubHandler implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "toString":
+                    return getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "isWrapperFor":
+                    return false;
+                case "unwrap":
+                    throw new SQLException("Not a wrapper for " + args[0]);
+                default:
+                    return handle(proxy, method, args);
+            }
+        }
+
+        abstract Object handle(Object proxy, Method method, Object[] args) throws Throwable;
+
+        static Object defaultValue(Class<?> type) {
+            if (type == boolean.class) {
+                return false;
+            }
+            if (type == int.class) {
+                return 0;
+            }
+            if (type == long.class) {
+                return 0L;
+            }
+            if (type == short.class) {
+                return (short) 0;
+            }
+            if (type == byte.class) {
+                return (byte) 0;
+            }
+            if (type == float.class) {
+                return 0f;
+            }
+            if (type == double.class) {
+                return 0d;
+            }
+            return null;
+        }
+    }
+
+    private class ConnectionHandler extends StubHandler {
+        private boolean autoCommit = true;
+        private boolean readOnly;
+        private boolean closed;
+
+        @Override
+        Object handle(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "getAutoCommit":
+                    return autoCommit;
+                case "setAutoCommit":
+                    autoCommit = (Boolean) args[0];
+                    return null;
+                case "isReadOnly":
+                    return readOnly;
+                case "setReadOnly":
+                    readOnly = (Boolean) args[0];
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "close":
+                    closed = true;
+                    return null;
+                case "isValid":
+                    return !closed;
+                case "getTransactionIsolation":
+                    return Connection.TRANSACTION_SERIALIZABLE;
+                case "commit":
+                    injector.beforeCommit();
+                    return null;
+                case "rollback":
+                    injector.onRollback(args != null && args.length > 0);
+                    return null;
+                case "setSavepoint":
+                    String name = args != null && args.length > 0 ? (String) args[0] : "";
+                    return FaultInjectingDataSource.proxy(Savepoint.class, new StubHandler() {
+                        @Override
+                        Object handle(Object proxy, Method method, Object[] args) {
+                            return method.getName().equals("getSavepointName") ? name : defaultValue(method.getReturnType());
+                        }
+                    });
+                case "createStatement":
+                case "prepareStatement":
+                case "prepareCall":
+                    String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : "";
+                    return FaultInjectingDataSource.proxy(PreparedStatement.class, new StatementHandler((Connection) proxy, sql));
+                case "getMetaData":
+                    return FaultInjectingDataSource.proxy(DatabaseMetaData.class, new DatabaseMetaDataHandler((Connection) proxy));
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        }
+    }
+
+    private class StatementHandler extends StubHandler {
+        private final Connection connection;
+        private String sql;
+        private int batchSize;
+        private ResultSet resultSet;
+        private int updateCount = -1;
+
+        StatementHandler(Connection connection, String sql) {
+            this.connection = connection;
+            this.sql = sql;
+        }
+
+        @Override
+        Object handle(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "execute":
+                case "executeQuery":
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                    if (args != null && args.length > 0 && args[0] instanceof String) {
+                        sql = (String) args[0];
+                    }
+                    injector.beforeStatement(sql);
+                    boolean query = isQuery(sql);
+                    resultSet = query ? emptyResultSet((PreparedStatement) proxy) : null;
+                    updateCount = query ? -1 : 1;
+                    if (method.getName().equals("execute")) {
+                        return query;
+                    }
+                    if (method.getName().equals("executeQuery")) {
+                        return resultSet;
+                    }
+                    return method.getReturnType() == long.class ? (Object) 1L : (Object) 1;
+                case "addBatch":
+                    batchSize++;
+                    return null;
+                case "clearBatch":
+                    batchSize = 0;
+                    return null;
+                case "executeBatch":
+                    injector.beforeStatement(sql);
+                    int[] counts = new int[batchSize];
+                    Arrays.fill(counts, 1);
+                    batchSize = 0;
+                    return counts;
+                case "getResultSet":
+                    return resultSet;
+                case "getUpdateCount":
+                    return updateCount;
+                case "getMoreResults":
+                    resultSet = null;
+                    updateCount = -1;
+                    return false;
+                case "getGeneratedKeys":
+                    return emptyResultSet((PreparedStatement) proxy);
+                case "getConnection":
+                    return connection;
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        }
+
+        private boolean isQuery(String sql) {
+            String normalized = sql.trim().toLowerCase(Locale.ROOT);
+            return normalized.startsWith("select") || normalized.contains(" returning ");
+        }
+
+        private ResultSet emptyResultSet(PreparedStatement statement) {
+            return FaultInjectingDataSource.proxy(ResultSet.class, new StubHandler() {
+                @Override
+                Object handle(Object proxy, Method method, Object[] args) {
+                    switch (method.getName()) {
+                        case "getMetaData":
+                            return FaultInjectingDataSource.proxy(ResultSetMetaData.class, new StubHandler() {
+                                @Override
+                                Object handle(Object proxy, Method method, Object[] args) {
+                                    return defaultValue(method.getReturnType());
+                                }
+                            });
+                        case "getType":
+                            return ResultSet.TYPE_FORWARD_ONLY;
+                        case "getStatement":
+                            return statement;
+                        default:
+                            return defaultValue(method.getReturnType());
+                    }
+                }
+            });
+        }
+    }
+
+    private static class DatabaseMetaDataHandler extends StubHandler {
+        private final Connection connection;
+
+        DatabaseMetaDataHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        Object handle(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "getDatabaseProductName":
+                    return "PostgreSQL";
+                case "getDatabaseProductVersion":
+                    return "13.0";
+                case "getDriverName":
+                    return FaultInjectingDataSource.class.getSimpleName();
+                case "getConnection":
+                    return connection;
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.cockroachdemo.faultinjection;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 可编程的故障注入器：FaultInjectingDataSource 在执行语句和提交事务时询问注入器是否要模拟延迟和故障。
+ * - 每种 Fault 有独立的注入概率，分别作用于语句执行（statement）或提交（commit）；failNext 可以确定地注入接下来的若干次
+ * - 语句延迟服从“固定值 + 指数分布”的随机延迟，模拟一次网络往返和服务端执行
+ * 所有设置都可以在运行时修改，线程安全；测试（src/test）和基准测试（src/jmh）共用。
+ */
+public class FaultInjector {
+    public enum Fault {
+        /** 语句执行时返回 40001（restart transaction） */
+        SERIALIZATION_FAILURE("40001", false),
+        /** 提交时返回 40001：事务在提交时才发现冲突 */
+        SERIALIZATION_FAILURE_ON_COMMIT("40001", true),
+        /** 提交时返回 40003：结果未知，事务可能已经提交 */
+        AMBIGUOUS_COMMIT("40003", true),
+        /** 语句执行时连接断开（08006） */
+        CONNECTION_DROP("08006", false);
+
+        private final String sqlState;
+        private final boolean onCommit;
+
+        Fault(String sqlState, boolean onCommit) {
+            this.sqlState = sqlState;
+            this.onCommit = onCommit;
+        }
+    }
+
+    /** 修改在 synchronized 中进行，执行语句的线程不加锁读取 */
+    private final Map<Fault, Double> rates = new ConcurrentHashMap<>();
+    private final Map<Fault, AtomicLong> injected = new EnumMap<>(Fault.class);
+    private final Map<Fault, AtomicInteger> forced = new EnumMap<>(Fault.class);
+    private final AtomicLong connections = new AtomicLong();
+    private final AtomicLong statements = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong rollbacks = new AtomicLong();
+    private final AtomicLong savepointRollbacks = new AtomicLong();
+    private volatile long fixedLatencyNanos;
+    private volatile long meanExtraLatencyNanos;
+
+    public FaultInjector() {
+        for (Fault fault : Fault.values()) {
+            injected.put(fault, new AtomicLong());
+            forced.put(fault, new AtomicInteger());
+        }
+        reset();
+    }
+
+    /**
+     * 清除所有故障、延迟设置和计数。
+     */
+    public synchronized void reset() {
+        for (Fault fault : Fault.values()) {
+            rates.put(fault, 0.0);
+            injected.get(fault).set(0);
+            forced.get(fault).set(0);
+        }
+        connections.set(0);
+        statements.set(0);
+        commits.set(0);
+        rollbacks.set(0);
+        savepointRollbacks.set(0);
+        fixedLatencyNanos = 0;
+        meanExtraLatencyNanos = 0;
+    }
+
+    public synchronized FaultInjector rate(Fault fault, double rate) {
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException("rate must be in [0, 1] but was " + rate);
+        }
+        rates.put(fault, rate);
+        return this;
+    }
+
+    /**
+     * 不论注入概率，在接下来 count 次对应的操作（语句执行或提交）中注入该故障。
+     */
+    public FaultInjector failNext(Fault fault, int count) {
+        forced.get(fault).addAndGet(count);
+        return this;
+    }
+
+    /**
+     * 每条语句的延迟：fixed 加上均值为 meanExtra 的指数分布随机值。
+     */
+    public FaultInjector statementLatency(long fixed, long meanExtra, TimeUnit unit) {
+        fixedLatencyNanos = unit.toNanos(fixed);
+        meanExtraLatencyNanos = unit.toNanos(meanExtra);
+        return this;
+    }
+
+    public long getInjected(Fault fault) {
+        return injected.get(fault).get();
+    }
+
+    public long getConnections() {
+        return connections.get();
+    }
+
+    public long getStatements() {
+        return statements.get();
+    }
+
+    public long getCommits() {
+        return commits.get();
+    }
+
+    /** 整个事务的回滚次数，不包括回滚到 savepoint */
+    public long getRollbacks() {
+        return rollbacks.get();
+    }
+
+    public long getSavepointRollbacks() {
+        return savepointRollbacks.get();
+    }
+
+    void onConnection() {
+        connections.incrementAndGet();
+    }
+
+    void onRollback(boolean toSavepoint) {
+        (toSavepoint ? savepointRollbacks : rollbacks).incrementAndGet();
+    }
+
+    void beforeStatement(String sql) throws SQLException {
+        statements.incrementAndGet();
+        long latencyNanos = fixedLatencyNanos;
+        if (meanExtraLatencyNanos > 0) {
+            latencyNanos += (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanExtraLatencyNanos);
+        }
+        if (latencyNanos > 0) {
+            LockSupport.parkNanos(latencyNanos);
+        }
+        maybeFail(false, sql);
+    }
+
+    void beforeCommit() throws SQLException {
+        commits.incrementAndGet();
+        maybeFail(true, "COMMIT");
+    }
+
+    private void maybeFail(boolean commit, String sql) throws SQLException {
+        for (Fault fault : Fault.values()) {
+            if (fault.onCommit != commit) {
+                continue;
+            }
+            double rate = rates.get(fault);
+            boolean force = forced.get(fault).getAndUpdate(remaining -> Math.max(remaining - 1, 0)) > 0;
+            if (force || rate > 0 && ThreadLocalRandom.current().nextDouble() < rate) {
+                injected.get(fault).incrementAndGet();
+                String message = "injected " + fault + " while executing: " + sql;
+                if (fault == Fault.CONNECTION_DROP) {
+                    throw new SQLTransientConnectionException(message, fault.sqlState);
+                }
+                throw new SQLException(message, fault.sqlState);
+            }
+        }
+    }
+}